@@ -1,6 +1,7 @@
 import lvp.Clerk;
 import lvp.skills.Text;
 import lvp.skills.Interaction;
+import lvp.skills.Parameters;
 import lvp.functionPlotter.plotter.FunctionPlotter;
 
 
@@ -59,24 +60,25 @@ void main() {
     // Input-Felder für Funktionen und Intervall
     Clerk.markdown("### Eingabeparameter anpassen");
 
-    // Eingabefelder für Parameter ohne Aktualisierung
+    // Eingabefelder für Parameter: Änderungen gehen direkt an das laufende Skript, die Datei bleibt unverändert
     Clerk.markdown("**Intervall:** (Format: [min;max]) Bitte geben Sie kein größeres Intervall als [-40;40] ein.");
-    String interval = "[-10;10]";  // interval Update
-    Clerk.write(Interaction.input("./demo.java", "// Interval Update", "interval = \"$\";", interval));
+    String interval = "[-10;10]";
+    Clerk.write(Interaction.parameterInput("./demo.java", "interval", "Intervall", Parameters.get("interval", interval)));
+    Clerk.write(Interaction.slider("Zoom", 1, 40, 10, Interaction.setParameter("./demo.java", "interval", "\"[-\" + this.value + \";\" + this.value + \"]\"")));
 
     Clerk.markdown("**Funktionen eingeben:**");
 
     Clerk.markdown("Funktion f(x) - <span style='color:red'>rot</span>:");
-    String fx = "exp(x -1)"; // fx Update
-    Clerk.write(Interaction.input("./demo.java", "// fx Update", "String fx = \"$\";", fx));
+    String fx = "exp(x -1)";
+    Clerk.write(Interaction.parameterInput("./demo.java", "fx", "f(x)", Parameters.get("fx", fx)));
 
     Clerk.markdown("Funktion g(x) - <span style='color:blue'>blau</span>:");
-    String gx = "x <= 0 ? 0 : x * x";  // gx Update
-    Clerk.write(Interaction.input("./demo.java", "// gx Update", "gx = \"$\";", gx));
+    String gx = "x <= 0 ? 0 : x * x";
+    Clerk.write(Interaction.parameterInput("./demo.java", "gx", "g(x)", Parameters.get("gx", gx)));
 
     Clerk.markdown("Funktion h(x) - <span style='color:green'>grün</span>:");
-    String hx = "cos(x)";  // hx Update
-    Clerk.write(Interaction.input("./demo.java", "// hx Update", "hx = \"$\";", hx));
+    String hx = "cos(x)";
+    Clerk.write(Interaction.parameterInput("./demo.java", "hx", "h(x)", Parameters.get("hx", hx)));
     // Function Plotter Example 1
 
     Clerk.markdown("### Bedingte Funktionen");
@@ -86,29 +88,36 @@ void main() {
     Clerk.markdown("- `x > 0 ? sin(x) : cos(x)` - Gibt sin(x) zurück, wenn x > 0 ist, sonst cos(x)");
 
     // Function Plotter Example 2
-    // FunctionPlotter mit dem Intervall initialisieren
-    FunctionPlotter plotter = new FunctionPlotter(interval);
+    // Wird bei jeder Parameteränderung neu gezeichnet, ohne die JVM neu zu starten
+    Parameters.live(() -> {
+        String f = Parameters.get("fx", fx);
+        String g = Parameters.get("gx", gx);
+        String h = Parameters.get("hx", hx);
 
-    // AST (Abstrakter Syntaxbaum) für jede Funktion visualisieren
-    Clerk.markdown("### Abstrakte Syntaxbäume (AST)");
+        // FunctionPlotter mit dem Intervall initialisieren
+        FunctionPlotter plotter = new FunctionPlotter(Parameters.get("interval", interval));
 
-    Clerk.markdown("**f(x) = " + fx + "**");
-    plotter.drawExpressionAST(fx);    // Zeigt die interne Struktur des Ausdrucks
+        // AST (Abstrakter Syntaxbaum) für jede Funktion visualisieren
+        Clerk.markdown("### Abstrakte Syntaxbäume (AST)");
 
-    Clerk.markdown("**g(x) = " + gx + "**");
-    plotter.drawExpressionAST(gx);
+        Clerk.markdown("**f(x) = " + f + "**");
+        plotter.drawExpressionAST(f);    // Zeigt die interne Struktur des Ausdrucks
 
-    Clerk.markdown("**h(x) = " + hx + "**");
-    plotter.drawExpressionAST(hx);
+        Clerk.markdown("**g(x) = " + g + "**");
+        plotter.drawExpressionAST(g);
 
-    // Funktionen mit unterschiedlichen Farben im Koordinatensystem zeichnen
-    Clerk.markdown("### Funktionsgraphen");
-    plotter.plotFunction(fx, 255, 0, 0);  // Rot für die Funktion f(x)
-    plotter.plotFunction(gx, 0, 0, 255);  // Blau für die Funktion g(x)
-    plotter.plotFunction(hx, 0, 255, 0);  // Grün für die Funktion h(x)
+        Clerk.markdown("**h(x) = " + h + "**");
+        plotter.drawExpressionAST(h);
 
-    // Ergebnis als SVG-Grafik ausgeben
-    plotter.writeTurtle();
+        // Funktionen mit unterschiedlichen Farben im Koordinatensystem zeichnen
+        Clerk.markdown("### Funktionsgraphen");
+        plotter.plotFunction(f, 255, 0, 0);  // Rot für die Funktion f(x)
+        plotter.plotFunction(g, 0, 0, 255);  // Blau für die Funktion g(x)
+        plotter.plotFunction(h, 0, 255, 0);  // Grün für die Funktion h(x)
+
+        // Ergebnis als SVG-Grafik ausgeben
+        plotter.writeTurtle();
+    });
     // Function Plotter Example 2
 
 }
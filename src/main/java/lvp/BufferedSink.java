@@ -0,0 +1,95 @@
+package lvp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects encoded Clerk events and writes them in one go: when the buffer is full, on a timer
+ * tick, at the end of {@link Clerk#batch}, on {@link Clerk#flush} and at JVM exit. A loop that
+ * emits thousands of small events then costs a few writes instead of one syscall per event.
+ */
+abstract class BufferedSink implements ClerkSink {
+    static final int FLUSH_THRESHOLD = 1 << 16;
+    static final long FLUSH_INTERVAL_MILLIS = 20;
+
+    private static final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "lvp-clerk-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private byte[] buffer = new byte[FLUSH_THRESHOLD];
+    private int size = 0;
+    private int batchDepth = 0;
+
+    // Starts the timer and the exit hook; called once the sink is fully constructed
+    final void start() {
+        ticker.scheduleWithFixedDelay(this::tick, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "lvp-clerk-exit"));
+    }
+
+    // Appends the encoded event with append(...)
+    protected abstract void encode(SSEType event, byte[] data);
+
+    protected abstract void write(byte[] bytes, int length) throws IOException;
+
+    @Override
+    public synchronized void out(SSEType event, String data) {
+        encode(event, data.getBytes(StandardCharsets.UTF_8));
+        if (size >= FLUSH_THRESHOLD) flush();
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (size == 0) return;
+        try {
+            write(buffer, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not send Clerk events", e);
+        } finally {
+            size = 0;
+        }
+    }
+
+    // Events of a batch leave together; only a full buffer splits them
+    @Override
+    public void batch(Runnable action) {
+        synchronized (this) { batchDepth++; }
+        try {
+            action.run();
+        } finally {
+            synchronized (this) {
+                if (--batchDepth == 0) flush();
+            }
+        }
+    }
+
+    private synchronized void tick() {
+        if (batchDepth > 0) return;
+        try {
+            flush();
+        } catch (UncheckedIOException _) {
+            // reported by the next out() or flush() of the script
+        }
+    }
+
+    protected final void append(byte b) {
+        ensureCapacity(1);
+        buffer[size++] = b;
+    }
+
+    protected final void append(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void ensureCapacity(int count) {
+        if (size + count > buffer.length) buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + count));
+    }
+}
@@ -0,0 +1,63 @@
+package lvp;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import lvp.logging.Logger;
+
+/**
+ * Class Data Sharing archive for the lvp jar ({@code --cds}). Every script JVM loads the
+ * same lvp and javac classes; with a dynamic AppCDS archive they are mapped from the
+ * archive instead of being parsed and verified again on each start.
+ */
+final class CdsArchive {
+    private CdsArchive() {}
+
+    static Path defaultPath(Path jar) {
+        String name = jar.getFileName().toString().replaceFirst("\\.jar$", "");
+        return jar.resolveSibling(name + ".jsa");
+    }
+
+    // Creates the archive if it is missing or older than the jar and returns the options for child JVMs
+    static List<String> prepare(Path archive, Path jar) {
+        if (!Files.isRegularFile(jar)) {
+            Logger.logError("CDS needs lvp to run from a jar, not from " + jar);
+            return List.of();
+        }
+        try {
+            if (!Files.exists(archive) || Files.getLastModifiedTime(archive).compareTo(Files.getLastModifiedTime(jar)) < 0) {
+                create(archive, jar);
+            }
+        } catch (IOException e) {
+            Logger.logError("Could not create CDS archive " + archive, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!Files.exists(archive)) return List.of();
+
+        Logger.logInfo("Using CDS archive " + archive.toAbsolutePath());
+        // -Xshare:auto falls back silently if the archive does not match; cds warnings would end up in the browser
+        return List.of("-XX:SharedArchiveFile=" + archive.toAbsolutePath(), "-Xshare:auto", "-Xlog:cds=off", "-Xlog:cds+dynamic=off");
+    }
+
+    private static void create(Path archive, Path jar) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of("java", "--enable-preview",
+            "-XX:ArchiveClassesAtExit=" + archive.toAbsolutePath(),
+            "--class-path", jar.toString(), Worker.class.getName(), "--warmup"));
+        Logger.logInfo("Creating CDS archive: " + String.join(" ", command));
+        Process process = new ProcessBuilder(command)
+            .redirectErrorStream(true)
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .start();
+        if (!process.waitFor(2, TimeUnit.MINUTES)) {
+            process.destroyForcibly();
+            Logger.logError("Timeout: creating the CDS archive took too long");
+        } else if (process.exitValue() != 0) {
+            Logger.logError("Creating the CDS archive failed with exit code " + process.exitValue());
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package lvp;
 
-import java.nio.charset.StandardCharsets;
-import java.util.Base64;
 import java.util.Random;
 import java.util.stream.Collectors;
 
@@ -24,5 +22,9 @@ public interface Clerk {
 
     public static void markdown(String text) { new MarkdownIt().write(text); }
 
-    public static void out(SSEType event, String data) { System.out.println(event + ":" + Base64.getEncoder().encodeToString(data.getBytes(StandardCharsets.UTF_8))); }
+    public static void out(SSEType event, String data) { ClerkSinks.current().out(event, data); }
+
+    // Events are buffered briefly; flush() sends them right away, batch() sends the events of the action together
+    public static void flush() { ClerkSinks.current().flush(); }
+    public static void batch(Runnable action) { ClerkSinks.current().batch(action); }
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package lvp;
+
+/**
+ * Destination of the events produced by {@link Clerk}. Scripts started as a separate
+ * process print them to stdout; scripts run inside the server hand them over directly.
+ */
+public interface ClerkSink {
+    void out(SSEType event, String data);
+
+    default void flush() {}
+
+    // Runs the action and sends the events it produced together
+    default void batch(Runnable action) {
+        action.run();
+        flush();
+    }
+}
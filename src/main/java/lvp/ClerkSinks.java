@@ -0,0 +1,20 @@
+package lvp;
+
+// Sink of the current thread; threads started by a script inherit the sink of the script
+final class ClerkSinks {
+    // Process-wide default: the framed socket if the server passed one, stdout otherwise
+    private static final class Default {
+        static final ClerkSink SINK = FramedSink.fromEnvironment();
+    }
+
+    private static final InheritableThreadLocal<ClerkSink> current = new InheritableThreadLocal<>() {
+        @Override
+        protected ClerkSink initialValue() { return Default.SINK; }
+    };
+
+    private ClerkSinks() {}
+
+    static ClerkSink current() { return current.get(); }
+    static void set(ClerkSink sink) { current.set(sink); }
+    static void reset() { current.remove(); }
+}
@@ -0,0 +1,43 @@
+package lvp;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Content hashes of the watched files; a save that leaves the bytes unchanged is not a change
+class FileIndex {
+    private record Entry(long size, byte[] hash) {}
+
+    private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+
+    // Records the current content and reports whether it differs from the last recorded one
+    boolean update(Path path) throws IOException {
+        byte[] content = Files.readAllBytes(path);
+        Entry entry = new Entry(content.length, hash(content));
+        Entry previous = entries.put(key(path), entry);
+        return previous == null || previous.size() != entry.size() || !Arrays.equals(previous.hash(), entry.hash());
+    }
+
+    void remove(Path path) {
+        entries.remove(key(path));
+    }
+
+    int size() { return entries.size(); }
+
+    static byte[] hash(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static Path key(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+}
@@ -1,59 +1,151 @@
 package lvp;
 
-import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardWatchEventKinds;
 import java.nio.file.WatchEvent;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 
+import lvp.jfr.ScriptFirstOutputEvent;
+import lvp.jfr.ScriptRunEvent;
+import lvp.jfr.ScriptStartEvent;
+import lvp.logging.LogLevel;
 import lvp.logging.Logger;
+import lvp.metrics.Counter;
+import lvp.metrics.Histogram;
+import lvp.metrics.Metrics;
 
 public class FileWatcher {
+    private static final Counter runs = Metrics.counter("lvp_runs_total", "Script runs started by the watcher");
+    private static final Histogram firstOutput = Metrics.histogram("lvp_run_first_output_seconds", "Time from spawning a script to its first line of output", Histogram.LATENCY_BUCKETS);
+    private static final Histogram runDuration = Metrics.histogram("lvp_run_duration_seconds", "Wall time of a script run", Histogram.LATENCY_BUCKETS);
+    private static final Counter cacheHits = Metrics.counter("lvp_result_cache_hits_total", "Runs replayed from the result cache instead of being executed");
+
+    // The line that closes a live section; from then on the script waits for parameter changes
+    private static final byte[] LIVE_END = (SSEType.LIVE + ":").getBytes(StandardCharsets.US_ASCII);
+
     private WatchService watcher;
     private ScheduledExecutorService debounceExecutor;
-    private final AtomicReference<ScheduledFuture<?>> pendingTask = new AtomicReference<>();
+    private final Map<Path, ScheduledFuture<?>> pendingTasks = new ConcurrentHashMap<>();
+    private final Map<WatchKey, Path> watchedDirs = new ConcurrentHashMap<>();
+    private final FileIndex index = new FileIndex();
+    private final ResultCache cache;
     
     private boolean isRunning = true;
     Path dir;
     String fileNamePattern;
+    RunOptions options;
+    private final InProcessRunner inProcessRunner = new InProcessRunner();
+    private WorkerPool workerPool;
+
+    // Matched files run side by side, at most --parallel of them at a time (live scripts waiting for
+    // parameter changes aside, see ScriptRun); a newer change of a file cancels its run still in progress
+    private final ExecutorService runExecutor;
+    private final Semaphore runSlots;
+    private final AtomicLong generations = new AtomicLong();
+    private final Map<Path, ScriptRun> activeRuns = new ConcurrentHashMap<>();
+
+    public FileWatcher(Path dir, String fileNamePattern, Server server) throws IOException {
+        this(dir, fileNamePattern, server, RunOptions.defaults());
+    }
 
-    public FileWatcher(Path dir, String fileNamePattern, Server server) throws IOException{
+    public FileWatcher(Path dir, String fileNamePattern, Server server, RunOptions options) throws IOException{
         this.dir = dir;
         this.fileNamePattern = fileNamePattern;
+        this.options = options;
+        cache = options.cache() ? new ResultCache(ResultCache.defaultDirectory()) : null;
+        runExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("lvp-run-", 0).factory());
+        runSlots = new Semaphore(Math.max(1, options.parallel()), true);
+        if (options.mode() == RunMode.WORKER) {
+            try {
+                List<String> command = javaCommand();
+                command.add(Worker.class.getName());
+                workerPool = new WorkerPool(options.workers(), command);
+            } catch (URISyntaxException e) {
+                throw new IOException("Could not locate the lvp jar for the worker pool", e);
+            }
+        }
 
         watcher = FileSystems.getDefault().newWatchService();
-        dir.register(watcher,
-            StandardWatchEventKinds.ENTRY_CREATE,
-            StandardWatchEventKinds.ENTRY_MODIFY);
-        Logger.logInfo("Watching in " + dir.normalize().toAbsolutePath() + "");
+        register(dir);
+        Logger.logInfo("Watching in " + dir.normalize().toAbsolutePath() + (options.recursive() ? " and " + (watchedDirs.size() - 1) + " subdirectories" : ""));
         
-        for (Path path : getMatchingFiles()) {
+        List<Path> files = getMatchingFiles();
+        files.sort(null);
+        for (Path path : files) {
+            index.update(path);
             Logger.logInfo("Running initial file: " + path.toAbsolutePath().normalize());
+            if (files.size() > 1) Logger.logInfo("Output of " + channelName(path) + " at http://localhost:" + server.port + "/?file=" + channelName(path));
             runJava(path, server);
         }
     }
 
+    // Name of the event channel of a watched file: its path relative to the watched directory
+    String channelName(Path path) {
+        return dir.toAbsolutePath().normalize().relativize(path.toAbsolutePath().normalize()).toString().replace('\\', '/');
+    }
+
+    // Registers the directory, and with --recursive all its subdirectories except hidden ones like .git
+    private void register(Path start) throws IOException {
+        if (!options.recursive()) {
+            watch(start);
+            return;
+        }
+        Files.walkFileTree(start, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                if (!directory.equals(start) && isHidden(directory)) return FileVisitResult.SKIP_SUBTREE;
+                watch(directory);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void watch(Path directory) throws IOException {
+        WatchKey key = directory.register(watcher,
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY,
+            StandardWatchEventKinds.ENTRY_DELETE);
+        watchedDirs.put(key, directory);
+    }
+
+    private static boolean isHidden(Path directory) {
+        return directory.getFileName() != null && directory.getFileName().toString().startsWith(".");
+    }
+
     public void watchLoop(Server server) {
         PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + fileNamePattern);
         debounceExecutor = Executors.newSingleThreadScheduledExecutor();
-        long debounceDelay = 200;            
         while (isRunning) {
             WatchKey key;
             try {
@@ -63,68 +155,342 @@ public class FileWatcher {
                     Logger.logError("Watcher loop terminated due to exception: " + e.getMessage(), e);
                 break;
             }
+            Path base = watchedDirs.get(key);
             for (WatchEvent<?> ev : key.pollEvents()) {
-                Path changed = (Path) ev.context();
-                if (matcher.matches(changed) && !Files.isDirectory(changed)) {
-                    Logger.logInfo("Event für Datei: " + changed.toAbsolutePath() + " (" + ev.kind().name() + ")");
-                    
-                    ScheduledFuture<?> prev = pendingTask.getAndSet(
-                        debounceExecutor.schedule(() -> runJava(dir.resolve(changed), server), debounceDelay, TimeUnit.MILLISECONDS)
-                    );
-                    if (prev != null && !prev.isDone()) prev.cancel(false);
+                if (ev.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    Logger.logError("Too many file events in " + base + ", some changes may have been missed");
+                    continue;
+                }
+                if (base == null) continue;
+                Path changed = base.resolve((Path) ev.context());
+                if (ev.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                    index.remove(changed);
+                    continue;
+                }
+                if (Files.isDirectory(changed)) {
+                    if (options.recursive() && ev.kind() == StandardWatchEventKinds.ENTRY_CREATE && !isHidden(changed))
+                        watchNewDirectory(changed, server);
+                    continue;
+                }
+                // Hidden files are temp files of editors and of the '/interact' updates
+                if (matcher.matches(changed.getFileName()) && !isHidden(changed)) {
+                    Logger.logInfo("Event für Datei: {} ({})", changed.toAbsolutePath(), ev.kind().name());
+                    schedule(changed, server);
                 }
             }
             
-            if (!key.reset()) break;
+            if (!key.reset()) {
+                watchedDirs.remove(key);
+                if (watchedDirs.isEmpty()) break;
+            }
+        }
+    }
+
+    // A new directory may already contain files (a copied folder, a checkout) before its watch is registered
+    private void watchNewDirectory(Path directory, Server server) {
+        try {
+            register(directory);
+            Logger.logInfo("Watching new directory " + directory.toAbsolutePath().normalize());
+            for (Path path : matchingFiles(directory)) schedule(path, server);
+        } catch (IOException e) {
+            Logger.logError("Could not watch new directory " + directory, e);
         }
     }
 
+    private void schedule(Path path, Server server) {
+        long debounceDelay = 200;
+        ScheduledFuture<?> prev = pendingTasks.put(path,
+            debounceExecutor.schedule(() -> runIfChanged(path, server), debounceDelay, TimeUnit.MILLISECONDS)
+        );
+        if (prev != null && !prev.isDone()) prev.cancel(false);
+    }
+
+    // Editors and formatters often rewrite a file without changing it; only new content triggers a run
+    private void runIfChanged(Path path, Server server) {
+        try {
+            if (!index.update(path)) {
+                Logger.logInfo("Content of {} unchanged, skipping run", path.normalize());
+                return;
+            }
+        } catch (IOException e) {
+            Logger.logError("Could not read " + path.normalize() + ": " + e.getMessage());
+            return;
+        }
+        runJava(path, server);
+    }
+
     public void stop() {
         isRunning = false;
         if (watcher != null) try { watcher.close(); } catch (IOException e) { e.printStackTrace(); }
         if (debounceExecutor != null) debounceExecutor.shutdownNow();
+        activeRuns.values().forEach(ScriptRun::cancel);
+        runExecutor.shutdownNow();
+        if (workerPool != null) workerPool.shutdown();
     }
 
+    // Queues a run of the file and cancels the one it supersedes; returns without waiting for the run
     private void runJava(Path path, Server server) {
+        Path key = path.toAbsolutePath().normalize();
+        ScriptRun run = new ScriptRun(path, generations.incrementAndGet());
+        ScriptRun previous = activeRuns.put(key, run);
+        if (previous != null) {
+            Logger.logInfo("Cancelling superseded run of {}", previous.path.normalize());
+            previous.cancel();
+        }
+        Server.Channel channel = server.channel(channelName(path));
+        runExecutor.execute(() -> {
+            try {
+                runSlots.acquire();
+                run.holdSlot(runSlots);
+                if (run.isCancelled()) return;
+                // Values changed while the script runs may or may not have been read, such a run is not cached
+                Map<String, String> parameters = server.parameters.snapshot(key);
+                String cacheKey = cacheKey(path, parameters);
+                if (cacheKey != null && replayCached(cacheKey, run, channel)) return;
+                boolean succeeded = switch (options.mode()) {
+                    case IN_PROCESS -> runInProcess(run, channel, server.parameters);
+                    case PROCESS, WORKER -> runProcess(run, channel, server.parameters);
+                };
+                if (cacheKey != null && succeeded && parameters.equals(server.parameters.snapshot(key))) {
+                    List<ResultCache.Entry> history = channel.history(run.generation);
+                    if (history != null) cache.store(cacheKey, history);
+                }
+            } catch (InterruptedException _) {
+                // the watcher stops
+            } finally {
+                run.releaseSlot();
+                activeRuns.remove(key, run);
+            }
+        });
+    }
+
+    private String cacheKey(Path path, Map<String, String> parameters) {
+        if (cache == null) return null;
+        try {
+            return cache.key(Files.readAllBytes(path), parameters);
+        } catch (IOException e) {
+            Logger.logError("Could not read " + path.normalize() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean replayCached(String cacheKey, ScriptRun run, Server.Channel channel) {
+        List<ResultCache.Entry> entries = cache.load(cacheKey);
+        if (entries == null) return false;
+        if (!channel.replay(entries, run.generation)) return true; // superseded, there is nothing left to do
+        cacheHits.increment();
+        Logger.logInfo("Replayed {} cached events of {}", entries.size(), run.path.normalize());
+        return true;
+    }
+
+    // Both runners report whether the script ran to a successful end, which makes its events cacheable
+    private boolean runInProcess(ScriptRun run, Server.Channel channel, ParameterStore parameters) {
+        Path path = run.path;
+        Path key = path.toAbsolutePath().normalize();
+        if (!channel.reset(run.generation)) return false;
+        Logger.logInfo("Executing {} in-process", path.normalize());
+        runs.increment();
+        long start = System.nanoTime();
+        ScriptRunEvent runEvent = new ScriptRunEvent();
+        ScriptFirstOutputEvent firstOutputEvent = new ScriptFirstOutputEvent();
+        runEvent.begin();
+        firstOutputEvent.begin();
+
+        ClerkSink direct = InProcessRunner.sinkFor(channel, run.generation);
+        ClerkSink sink = (event, data) -> {
+            if (runEvent.lines++ == 0) {
+                firstOutput.observeSince(start);
+                firstOutputEvent.path = path.toString();
+                firstOutputEvent.commit();
+                Logger.logInfo("First event after {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+            direct.out(event, data);
+            if (event == SSEType.LIVE && data.isEmpty()) run.releaseSlot();
+        };
+        Map<String, String> known = parameters.snapshot(key);
+        ParameterInbox inbox = new ParameterInbox(known, true);
+        BiConsumer<String, String> listener = inbox::put;
+        parameters.listen(key, known, listener);
         try {
-            Path jarLocation = Paths.get(getClass().getProtectionDomain().getCodeSource().getLocation().toURI()).toAbsolutePath().normalize();
-            server.events.clear();
-            Logger.logInfo("Executing java --enable-preview --class-path " + jarLocation + " " + path.normalize().toString());
-            ProcessBuilder pb = new ProcessBuilder("java", "--enable-preview", "--class-path", jarLocation.toString(), path.normalize().toString())
-                .redirectErrorStream(true);
-            Process process = pb.start();
-
-            try(BufferedReader reader = new BufferedReader(
-                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        Logger.logDebug("(JavaClient) " + line);
-                        server.read(line);
+            boolean completed = inProcessRunner.run(path.normalize(), sink, inbox, line -> channel.read(line, run.generation), run::attach);
+            runEvent.exitCode = completed ? 0 : 1;
+            Logger.logInfo(run.isCancelled() ? "Execution superseded" : "Execution finished");
+        } catch (InterruptedException _) {
+            runEvent.exitCode = -1; // the watcher is stopping, e.g. while a live script waits for parameters
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            runEvent.exitCode = -1;
+            Logger.logError("Error in in-process run", e);
+        } finally {
+            parameters.unlisten(key, listener);
+            inbox.close();
+        }
+        runDuration.observeSince(start);
+        runEvent.path = path.toString();
+        runEvent.commit();
+        return runEvent.exitCode == 0 && !run.isCancelled();
+    }
+
+    // `java` with the lvp jar on the class path, completed by a script file or the worker class
+    private List<String> javaCommand() throws URISyntaxException {
+        Path jarLocation = jarLocation();
+        List<String> command = new ArrayList<>(List.of("java", "--enable-preview"));
+        command.addAll(options.jvmOptions());
+        command.addAll(List.of("--class-path", jarLocation.toString()));
+        return command;
+    }
+
+    static Path jarLocation() throws URISyntaxException {
+        return Paths.get(FileWatcher.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toAbsolutePath().normalize();
+    }
+
+    private Process spawn(Path path, FrameReader frames, Map<String, String> parameters) throws IOException, URISyntaxException {
+        List<String> command = javaCommand();
+        command.add(path.normalize().toString());
+        Logger.logInfo(() -> "Executing " + String.join(" ", command));
+        ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true);
+        if (frames != null) builder.environment().put(FramedSink.SOCKET_ENV, frames.socketPath().toString());
+        // Never empty: Windows drops empty variables, and the variable tells the script that changes follow on stdin
+        builder.environment().put(ParameterInbox.ENV, "," + ParameterInbox.encode(parameters));
+        return builder.start();
+    }
+
+    private Process handOver(Path path, FrameReader frames, Map<String, String> parameters) throws IOException, InterruptedException {
+        Process worker = workerPool.take();
+        Logger.logInfo("Executing {} in worker {}", path.normalize(), worker.pid());
+        BufferedWriter input = worker.outputWriter(StandardCharsets.UTF_8);
+        input.write(path.normalize().toAbsolutePath().toString());
+        input.write("\t" + (frames != null ? frames.socketPath() : ""));
+        input.write("\t" + ParameterInbox.encode(parameters));
+        input.newLine();
+        input.flush();
+        return worker;
+    }
+
+    // Writes parameter changes to the stdin of a script process, so '/parameter' never waits for the pipe
+    private static final class ParameterFeed implements BiConsumer<String, String>, AutoCloseable {
+        private final LinkedBlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        private final Thread writer;
+
+        ParameterFeed(Process process) {
+            BufferedWriter input = process.outputWriter(StandardCharsets.UTF_8);
+            writer = Thread.ofVirtual().name("lvp-parameters-" + process.pid()).start(() -> {
+                try {
+                    while (true) {
+                        input.write(lines.take());
+                        input.newLine();
+                        if (lines.isEmpty()) input.flush();
                     }
-                    Logger.logInfo("Execution finished");
+                } catch (IOException | InterruptedException _) {} // the process has ended
+            });
+        }
+
+        @Override
+        public void accept(String name, String value) { lines.add(ParameterInbox.encode(name, value)); }
+
+        @Override
+        public void close() { writer.interrupt(); }
+    }
+
+    private boolean runProcess(ScriptRun run, Server.Channel channel, ParameterStore parameters) {
+        Path path = run.path;
+        Path key = path.toAbsolutePath().normalize();
+        try {
+            if (!channel.reset(run.generation)) return false;
+            runs.increment();
+            long start = System.nanoTime();
+            ScriptRunEvent runEvent = new ScriptRunEvent();
+            ScriptFirstOutputEvent firstOutputEvent = new ScriptFirstOutputEvent();
+            ScriptStartEvent startEvent = new ScriptStartEvent();
+            runEvent.begin();
+            firstOutputEvent.begin();
+            startEvent.begin();
+            // With --framed, events arrive on a socket and stdout only carries stray output; either can be first
+            AtomicBoolean hasOutput = new AtomicBoolean();
+            int exitCode;
+            try (FrameReader frames = options.framed()
+                    ? FrameReader.open(channelName(path), (type, payload) -> {
+                        if (hasOutput.compareAndSet(false, true)) observeFirstOutput(path, start, firstOutputEvent);
+                        channel.publish(type, Base64.getEncoder().encode(payload), run.generation);
+                        if (type == SSEType.LIVE && payload.length == 0) run.releaseSlot();
+                    })
+                    : null) {
+                Map<String, String> known = parameters.snapshot(key);
+                Process process = options.mode() == RunMode.WORKER ? handOver(path, frames, known) : spawn(path, frames, known);
+                run.attach(process);
+                startEvent.path = path.toString();
+                startEvent.pid = process.pid();
+                startEvent.commit();
+
+                ParameterFeed feed = new ParameterFeed(process);
+                parameters.listen(key, known, feed);
+                try (feed; InputStream output = process.getInputStream()) {
+                    LineIngestion.pump(output, channelName(path), (line, length) -> {
+                        if (run.isCancelled()) return;
+                        runEvent.lines++;
+                        if (hasOutput.compareAndSet(false, true)) observeFirstOutput(path, start, firstOutputEvent);
+                        if (Logger.isEnabled(LogLevel.Debug)) Logger.logDebug("(JavaClient) {}", new String(line, 0, length, StandardCharsets.UTF_8));
+                        channel.read(line, length, run.generation);
+                        if (Arrays.equals(line, 0, length, LIVE_END, 0, LIVE_END.length)) run.releaseSlot();
+                    });
+                    Logger.logInfo(run.isCancelled() ? "Execution superseded" : "Execution finished");
+                } finally {
+                    parameters.unlisten(key, feed);
                 }
 
-            boolean finished = process.waitFor(30, TimeUnit.SECONDS);
-            if (!finished) {
-                process.destroyForcibly();
-                Logger.logError("Timeout: process killed");
+                boolean finished = process.waitFor(30, TimeUnit.SECONDS);
+                if (!finished) {
+                    process.destroyForcibly();
+                    Logger.logError("Timeout: process killed");
+                }
+                exitCode = finished ? process.exitValue() : -1;
             }
-
+            runDuration.observeSince(start);
+            runEvent.path = path.toString();
+            runEvent.exitCode = exitCode;
+            runEvent.commit();
+            return runEvent.exitCode == 0 && !run.isCancelled();
         } catch (Exception e) {
             Logger.logError("Error in Java Process", e);
+            return false;
         }
     }
 
+    private static void observeFirstOutput(Path path, long start, ScriptFirstOutputEvent firstOutputEvent) {
+        firstOutput.observeSince(start);
+        firstOutputEvent.path = path.toString();
+        firstOutputEvent.commit();
+        Logger.logInfo("First output after {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
     public List<Path> getMatchingFiles() throws IOException {
+        return matchingFiles(dir);
+    }
+
+    private List<Path> matchingFiles(Path start) throws IOException {
         List<Path> matchingFiles = new ArrayList<>();
         PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + fileNamePattern);
-        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
-            for (Path entry : stream) {
-                if (!Files.isDirectory(entry) && matcher.matches(entry.getFileName())) {
-                    matchingFiles.add(entry);
+        if (!options.recursive()) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(start)) {
+                for (Path entry : stream) {
+                    if (!Files.isDirectory(entry) && matcher.matches(entry.getFileName())) {
+                        matchingFiles.add(entry);
+                    }
                 }
             }
+            return matchingFiles;
         }
+        Files.walkFileTree(start, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+                return !directory.equals(start) && isHidden(directory) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (attributes.isRegularFile() && matcher.matches(file.getFileName())) matchingFiles.add(file);
+                return FileVisitResult.CONTINUE;
+            }
+        });
         return matchingFiles;
     }
 }
@@ -0,0 +1,96 @@
+package lvp;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lvp.logging.Logger;
+
+// Server end of the framed protocol of one script run, see FramedSink
+class FrameReader implements AutoCloseable {
+    interface FrameHandler { void accept(SSEType type, byte[] payload); }
+
+    private static final SSEType[] types = SSEType.values();
+    private static final AtomicLong sockets = new AtomicLong();
+
+    private final Path socketPath;
+    private final ServerSocketChannel server;
+    private final Thread thread;
+
+    private FrameReader(Path socketPath, ServerSocketChannel server, String name, FrameHandler handler) {
+        this.socketPath = socketPath;
+        this.server = server;
+        this.thread = Thread.ofVirtual().name("lvp-frames-" + name).start(() -> {
+            // A script holds at most one connection; threads it starts share its sink
+            try (SocketChannel client = server.accept()) {
+                readFrames(client, handler);
+            } catch (AsynchronousCloseException _) {
+                // the script ended without sending events
+            } catch (IOException e) {
+                Logger.logError("Error reading events of " + name, e);
+            }
+        });
+    }
+
+    static FrameReader open(String name, FrameHandler handler) throws IOException {
+        Path socketPath = Path.of(System.getProperty("java.io.tmpdir"),
+            "lvp-" + ProcessHandle.current().pid() + "-" + sockets.incrementAndGet() + ".sock");
+        Files.deleteIfExists(socketPath);
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socketPath));
+        return new FrameReader(socketPath, server, name, handler);
+    }
+
+    Path socketPath() { return socketPath; }
+
+    private static void readFrames(SocketChannel client, FrameHandler handler) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FramedSink.HEADER_SIZE);
+        while (true) {
+            header.clear();
+            if (!fill(client, header, true)) return;
+            header.flip();
+            byte magic = header.get();
+            int type = header.get() & 0xFF;
+            int length = header.getInt();
+            if (magic != FramedSink.MAGIC || type >= types.length || length < 0 || length > FramedSink.MAX_FRAME) {
+                Logger.logError("Corrupt event frame (magic " + magic + ", type " + type + ", length " + length + "), closing connection");
+                return;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            fill(client, payload, false);
+            handler.accept(types[type], payload.array());
+        }
+    }
+
+    // Returns false on a clean end of stream before the first byte of a frame
+    private static boolean fill(SocketChannel client, ByteBuffer buffer, boolean endAllowed) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (client.read(buffer) == -1) {
+                if (endAllowed && buffer.position() == 0) return false;
+                throw new EOFException("Connection closed inside an event frame");
+            }
+        }
+        return true;
+    }
+
+    // Called after the script has exited: waits for the remaining frames, then removes the socket
+    @Override
+    public void close() throws IOException {
+        server.close();
+        try {
+            thread.join(5_000);
+        } catch (InterruptedException _) {
+            Thread.currentThread().interrupt(); // the run is being cancelled, its remaining frames are dropped anyway
+        }
+        if (thread.isAlive()) thread.interrupt();
+        Files.deleteIfExists(socketPath);
+    }
+}
@@ -0,0 +1,67 @@
+package lvp;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sends Clerk events over a Unix domain socket instead of stdout ({@code --framed}). Every event
+ * is one frame: a magic byte, the SSEType ordinal, the payload length (4 bytes, big endian) and
+ * the payload as raw UTF-8. There is no Base64 step, and lines that libraries print to stdout
+ * can no longer be mistaken for events. Frames are buffered like those of {@link StdoutSink}.
+ */
+class FramedSink extends BufferedSink {
+    // Path of the socket the server listens on for this run
+    static final String SOCKET_ENV = "LVP_SOCKET";
+    static final byte MAGIC = (byte) 0xC1;
+    static final int HEADER_SIZE = 6;
+    // Larger frames are taken for a corrupt header by the server, see FrameReader
+    static final int MAX_FRAME = 64 << 20;
+
+    private final SocketChannel channel;
+    private final byte[] header = new byte[HEADER_SIZE];
+
+    private FramedSink(SocketChannel channel) {
+        this.channel = channel;
+    }
+
+    static FramedSink connect(String socketPath) throws IOException {
+        SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        channel.connect(UnixDomainSocketAddress.of(socketPath));
+        FramedSink sink = new FramedSink(channel);
+        sink.start();
+        return sink;
+    }
+
+    // The socket of the environment, or stdout if there is none or it cannot be reached
+    static ClerkSink fromEnvironment() {
+        String socketPath = System.getenv(SOCKET_ENV);
+        if (socketPath == null || socketPath.isBlank()) return StdoutSink.create();
+        try {
+            return connect(socketPath);
+        } catch (IOException e) {
+            System.err.println("Could not connect to " + socketPath + ", falling back to stdout: " + e.getMessage());
+            return StdoutSink.create();
+        }
+    }
+
+    @Override
+    protected void encode(SSEType event, byte[] data) {
+        if (data.length > MAX_FRAME) {
+            data = ("Dropped " + event + " event of " + data.length + " bytes, frames are limited to " + MAX_FRAME + " bytes").getBytes(StandardCharsets.UTF_8);
+            event = SSEType.LOG;
+        }
+        ByteBuffer.wrap(header).put(MAGIC).put((byte) event.ordinal()).putInt(data.length);
+        append(header);
+        append(data);
+    }
+
+    @Override
+    protected void write(byte[] bytes, int length) throws IOException {
+        ByteBuffer frames = ByteBuffer.wrap(bytes, 0, length);
+        while (frames.hasRemaining()) channel.write(frames);
+    }
+}
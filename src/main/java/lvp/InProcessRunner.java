@@ -0,0 +1,254 @@
+package lvp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.JavacTask;
+
+import lvp.logging.Logger;
+
+/**
+ * Runs a watched script inside the server JVM: the source is compiled in memory with
+ * {@link JavaCompiler}, loaded by a fresh class loader that is dropped after the run, and
+ * its Clerk events go straight to the server. This saves the JVM boot, the source launcher
+ * and the JIT warm-up of a new process. Scripts must not call {@code System.exit}, and output
+ * printed directly to {@code System.out} ends up on the server console.
+ */
+class InProcessRunner {
+    static final long TIMEOUT_SECONDS = 30;
+    private static final long TICK_MILLIS = 100;
+
+    private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+    // Compiles and runs the script; compiler messages and uncaught exceptions go to `output`
+    // line by line, `onStart` receives the script thread. Returns false if the run failed or timed out.
+    // The timeout does not count the time a live script waits for a change of its `parameters`.
+    boolean run(Path path, ClerkSink sink, ParameterInbox parameters, Consumer<String> output, Consumer<Thread> onStart) throws IOException, InterruptedException {
+        if (compiler == null) {
+            Logger.logError("No Java compiler available, in-process execution needs a JDK");
+            return false;
+        }
+
+        Compilation compilation;
+        try (StandardJavaFileManager standard = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            compilation = compile(standard, standard.getJavaFileObjects(path), path);
+        }
+        if (compilation.mainClass() == null) {
+            compilation.diagnostics().forEach(output);
+            return false;
+        }
+
+        ScriptClassLoader loader = new ScriptClassLoader(compilation.classes(), InProcessRunner.class.getClassLoader());
+        boolean[] failed = { false };
+        Thread thread = Thread.ofPlatform()
+            .name("lvp-script-" + path.getFileName())
+            .daemon(true)
+            .unstarted(() -> {
+                ClerkSinks.set(sink);
+                ParameterInbox.set(parameters);
+                try {
+                    invokeMain(loader.loadClass(compilation.mainClass()));
+                } catch (Throwable t) {
+                    failed[0] = true;
+                    report(t instanceof InvocationTargetException e ? e.getCause() : t, output);
+                } finally {
+                    sink.flush();
+                    ClerkSinks.reset();
+                    ParameterInbox.reset();
+                }
+            });
+        thread.setContextClassLoader(loader);
+        thread.start();
+        onStart.accept(thread);
+        long running = 0;
+        while (thread.isAlive() && running < TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS)) {
+            thread.join(TICK_MILLIS);
+            running = parameters.isListening() ? 0 : running + TICK_MILLIS;
+        }
+        if (thread.isAlive()) {
+            thread.interrupt();
+            Logger.logError("Timeout: script thread interrupted");
+            return false;
+        }
+        return !failed[0];
+    }
+
+    // Compiles a small script against the lvp classes so that javac and the lvp API are loaded and warm
+    void warmUp() throws IOException {
+        if (compiler == null) return;
+        String source = """
+            import lvp.Clerk;
+            import lvp.skills.Text;
+            import lvp.views.Turtle;
+            import lvp.functionPlotter.plotter.FunctionPlotter;
+            void main() {
+                Clerk.markdown(Text.fillOut("${0}", new Turtle().hashCode()));
+                new FunctionPlotter("[-1;1]").plotFunction("x", 0, 0, 0);
+            }
+            """;
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///Warmup.java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) { return source; }
+        };
+        try (StandardJavaFileManager standard = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            compile(standard, List.of(file), Path.of("Warmup.java"));
+        }
+    }
+
+    // Compilation
+
+    private record Compilation(String mainClass, Map<String, byte[]> classes, List<String> diagnostics) {}
+
+    private Compilation compile(StandardJavaFileManager standard, Iterable<? extends JavaFileObject> sources, Path path) throws IOException {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        List<String> options = List.of(
+            "--enable-preview", "--release", Integer.toString(Runtime.version().feature()),
+            "-Xlint:-preview", "-proc:none", "-implicit:none",
+            "--class-path", System.getProperty("java.class.path"));
+
+        try (MemoryFileManager fileManager = new MemoryFileManager(standard)) {
+            JavacTask task = (JavacTask) compiler.getTask(null, fileManager, diagnostics, options, null, sources);
+            String mainClass = null;
+            for (CompilationUnitTree unit : task.parse()) {
+                mainClass = firstTypeName(unit);
+            }
+            task.analyze();
+            task.generate();
+
+            List<String> messages = new ArrayList<>();
+            boolean hasErrors = false;
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) hasErrors = true;
+                if (diagnostic.getKind() == Diagnostic.Kind.NOTE) continue;
+                String source = diagnostic.getSource() != null ? diagnostic.getSource().getName() : path.toString();
+                messages.add(source + ":" + diagnostic.getLineNumber() + ": " + diagnostic.getKind().toString().toLowerCase() + ": " + diagnostic.getMessage(null));
+            }
+            if (hasErrors) messages.add("error: compilation failed");
+            return new Compilation(hasErrors ? null : mainClass, fileManager.classes, messages);
+        }
+    }
+
+    // Like the source launcher, the first top-level type of the file is the one to run
+    private static String firstTypeName(CompilationUnitTree unit) {
+        String packagePrefix = unit.getPackageName() != null ? unit.getPackageName() + "." : "";
+        for (Tree type : unit.getTypeDecls()) {
+            if (type instanceof ClassTree classTree && !classTree.getSimpleName().isEmpty())
+                return packagePrefix + classTree.getSimpleName();
+        }
+        String fileName = Path.of(unit.getSourceFile().toUri().getPath()).getFileName().toString();
+        return packagePrefix + fileName.substring(0, fileName.length() - ".java".length());
+    }
+
+    private static class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        final Map<String, byte[]> classes = new ConcurrentHashMap<>();
+
+        MemoryFileManager(StandardJavaFileManager fileManager) { super(fileManager); }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(JavaFileManager.Location location, String className,
+                JavaFileObject.Kind kind, FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return new ByteArrayOutputStream() {
+                        @Override
+                        public void close() { classes.put(className, toByteArray()); }
+                    };
+                }
+            };
+        }
+    }
+
+    private static class ScriptClassLoader extends ClassLoader {
+        private final Map<String, byte[]> classes;
+
+        ScriptClassLoader(Map<String, byte[]> classes, ClassLoader parent) {
+            super("lvp-script", parent);
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if (bytes == null) throw new ClassNotFoundException(name);
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    // Execution
+
+    // Launch protocol of the source launcher: static before instance, main(String[]) before main()
+    private static void invokeMain(Class<?> mainClass) throws ReflectiveOperationException {
+        Method withArgs = findMain(mainClass, true);
+        Method noArgs = findMain(mainClass, false);
+        Method main = withArgs != null && Modifier.isStatic(withArgs.getModifiers()) ? withArgs
+            : noArgs != null && Modifier.isStatic(noArgs.getModifiers()) ? noArgs
+            : withArgs != null ? withArgs : noArgs;
+        if (main == null) throw new NoSuchMethodException("No main method found in " + mainClass.getName());
+
+        main.setAccessible(true);
+        Object instance = null;
+        if (!Modifier.isStatic(main.getModifiers())) {
+            var constructor = mainClass.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            instance = constructor.newInstance();
+        }
+        if (main.getParameterCount() == 1) main.invoke(instance, (Object) new String[0]);
+        else main.invoke(instance);
+    }
+
+    private static Method findMain(Class<?> type, boolean withArgs) {
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            try {
+                Method method = withArgs ? c.getDeclaredMethod("main", String[].class) : c.getDeclaredMethod("main");
+                if (!Modifier.isPrivate(method.getModifiers())) return method;
+            } catch (NoSuchMethodException _) {}
+        }
+        return null;
+    }
+
+    // Uncaught exceptions show up in the browser like the stderr of a script process
+    private static void report(Throwable error, Consumer<String> output) {
+        if (error instanceof UnsupportedClassVersionError) {
+            Logger.logError("In-process execution needs preview features: start the server with 'java --enable-preview -jar ...'", error);
+        }
+        StringWriter trace = new StringWriter();
+        error.printStackTrace(new PrintWriter(trace));
+        trace.toString().lines().forEach(output);
+    }
+
+    // Sink that hands events directly to the server, without a text protocol on stdout
+    static ClerkSink sinkFor(Server.Channel channel, long generation) {
+        return (event, data) -> channel.publish(event, Base64.getEncoder().encode(data.getBytes(StandardCharsets.UTF_8)), generation);
+    }
+}
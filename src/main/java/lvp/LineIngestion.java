@@ -0,0 +1,108 @@
+package lvp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import lvp.logging.Logger;
+import lvp.metrics.Counter;
+import lvp.metrics.Metrics;
+
+/**
+ * Reads the output of a script process and hands it line by line to a consumer thread.
+ * The reader only frames lines on raw bytes, so the pipe is drained at full speed while the
+ * consumer builds SSE frames and writes to clients. Lines are handed over in batches of one read
+ * each, so the queue is touched once per buffer rather than once per line. When the consumer falls
+ * behind, the bounded queue blocks the reader, the pipe fills up and the script waits: memory stays bounded.
+ */
+class LineIngestion {
+    interface LineHandler { void accept(byte[] line, int length); }
+
+    static final int BUFFER_SIZE = 1 << 18;
+    static final int QUEUE_CAPACITY = 64; // batches, at most about 16 MB of output in flight
+    private static final List<byte[]> END = List.of();
+
+    private static final Counter bytesRead = Metrics.counter("lvp_ingest_bytes_total", "Bytes read from the output of script processes");
+    private static final Counter readerStalls = Metrics.counter("lvp_ingest_stalls_total", "Batches the reader had to wait for because the handoff queue was full");
+
+    private LineIngestion() {}
+
+    // Blocks until the stream has ended and the handler has seen every line
+    static void pump(InputStream in, String name, LineHandler handler) throws IOException, InterruptedException {
+        BlockingQueue<List<byte[]>> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        Thread consumer = Thread.ofVirtual().name("lvp-ingest-" + name).start(() -> {
+            try {
+                for (List<byte[]> batch = queue.take(); batch != END; batch = queue.take()) {
+                    for (byte[] line : batch) {
+                        try {
+                            handler.accept(line, line.length);
+                        } catch (RuntimeException e) {
+                            Logger.logError("Error handling output of " + name, e);
+                        }
+                    }
+                }
+            } catch (InterruptedException _) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        try {
+            forEachLine(in, batch -> {
+                if (!queue.offer(batch)) {
+                    readerStalls.increment();
+                    queue.put(batch);
+                }
+            });
+        } finally {
+            if (!queue.offer(END)) {
+                try { queue.put(END); } catch (InterruptedException e) { consumer.interrupt(); throw e; }
+            }
+        }
+        consumer.join();
+    }
+
+    private interface Sink { void put(List<byte[]> lines) throws InterruptedException; }
+
+    // Splits the stream into lines on raw bytes; every line is an exactly sized copy without '\r\n'
+    private static void forEachLine(InputStream in, Sink sink) throws IOException, InterruptedException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        byte[] carry = new byte[1 << 13]; // start of a line that continues in the next read
+        int carried = 0;
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            bytesRead.add(n);
+            List<byte[]> lines = new ArrayList<>();
+            int from = 0;
+            for (int i = 0; i < n; i++) {
+                if (buffer[i] != '\n') continue;
+                if (carried == 0) {
+                    lines.add(Arrays.copyOfRange(buffer, from, strip(buffer, from, i)));
+                } else {
+                    carry = append(carry, carried, buffer, from, i - from);
+                    carried += i - from;
+                    lines.add(Arrays.copyOf(carry, strip(carry, 0, carried)));
+                    carried = 0;
+                }
+                from = i + 1;
+            }
+            carry = append(carry, carried, buffer, from, n - from);
+            carried += n - from;
+            if (!lines.isEmpty()) sink.put(lines);
+        }
+        if (carried > 0) sink.put(List.of(Arrays.copyOf(carry, strip(carry, 0, carried))));
+    }
+
+    // End of the line without a trailing '\r'
+    private static int strip(byte[] bytes, int from, int to) {
+        return to > from && bytes[to - 1] == '\r' ? to - 1 : to;
+    }
+
+    private static byte[] append(byte[] line, int length, byte[] source, int from, int count) {
+        if (length + count > line.length) line = Arrays.copyOf(line, Math.max(line.length * 2, length + count));
+        System.arraycopy(source, from, line, length, count);
+        return line;
+    }
+}
@@ -4,35 +4,72 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 
+import lvp.jfr.Recorder;
+import lvp.logging.BinaryFileDestination;
+import lvp.logging.FlushPolicy;
 import lvp.logging.LogLevel;
 import lvp.logging.Logger;
+import lvp.logging.RollingFileDestination;
+import lvp.logging.RollingPolicy;
 
 public class Main {
-    private record Config(Path path, String fileNamePattern, int port, LogLevel logLevel){}
+    private record Config(Path path, String fileNamePattern, int port, LogLevel logLevel, boolean gzip, int threads, Path jfr, RunMode runMode, int workers, int parallel, boolean recursive, boolean cache, boolean framed, long logAsync, Path logFile, RollingPolicy logRoll, Path logBinary, Path cds){}
     public static void main(String[] args) {
         Config cfg = parseArgs(args);
         Logger.setLogLevel(cfg.logLevel());
+        if (cfg.logFile() != null) {
+            try {
+                Logger.addDestination(RollingFileDestination.of(cfg.logFile(), cfg.logRoll()));
+            } catch (IOException e) {
+                System.exit(1);
+            }
+        }
+        if (cfg.logBinary() != null) {
+            try {
+                BinaryFileDestination binary = BinaryFileDestination.of(cfg.logBinary());
+                Logger.addDestination(binary);
+                Runtime.getRuntime().addShutdownHook(new Thread(binary::close));
+            } catch (IOException e) {
+                System.exit(1);
+            }
+        }
+        if (cfg.logAsync() >= 0) Logger.startAsync(1 << 14, FlushPolicy.every(cfg.logAsync()));
+        List<String> jvmOptions = new ArrayList<>();
 
         if (!isLatestRelease()) {
             System.out.println("Warning: You are not using the latest release of Live View Programming. Please visit https://github.com/denkspuren/LiveViewProgramming/releases");
         }
         
         try {
-            Server server = new Server(Math.abs(cfg.port()), cfg.logLevel().equals(LogLevel.Debug));
+            if (cfg.jfr() != null) {
+                Recorder recorder = Recorder.start(cfg.jfr());
+                Runtime.getRuntime().addShutdownHook(new Thread(recorder::stop));
+                jvmOptions.add(recorder.childOption());
+            }
+
+            Server server = new Server(Math.abs(cfg.port()), cfg.logLevel().equals(LogLevel.Debug), cfg.gzip(), Server.executorFor(cfg.threads()));
             Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
 
             if(cfg.path() != null) {
-                FileWatcher watcher = new FileWatcher(cfg.path(), cfg.fileNamePattern(), server);
+                if (cfg.cds() != null) {
+                    Path jar = FileWatcher.jarLocation();
+                    jvmOptions.addAll(CdsArchive.prepare(cfg.cds().toString().isEmpty() ? CdsArchive.defaultPath(jar) : cfg.cds(), jar));
+                }
+                FileWatcher watcher = new FileWatcher(cfg.path(), cfg.fileNamePattern(), server, new RunOptions(cfg.runMode(), jvmOptions, cfg.workers(), cfg.parallel(), cfg.recursive(), cfg.cache(), cfg.framed()));
                 Runtime.getRuntime().addShutdownHook(new Thread(watcher::stop));
                 watcher.watchLoop(server);
             }
-        } catch (IOException e) {
+        } catch (IOException | URISyntaxException e) {
             System.err.println("Error starting server: " + e.getMessage());
             e.printStackTrace();
             System.exit(1);
@@ -45,6 +82,20 @@ public class Main {
         Path path = null;
         int port = Server.getDefaultPort();
         LogLevel logLevel = LogLevel.Error;
+        boolean gzip = false;
+        int threads = 0;
+        Path jfr = null;
+        RunMode runMode = RunMode.PROCESS;
+        int workers = 2;
+        int parallel = RunOptions.defaultParallel();
+        boolean recursive = false;
+        boolean cache = true;
+        boolean framed = false;
+        long logAsync = -1;
+        Path logFile = null;
+        RollingPolicy logRoll = RollingPolicy.defaults();
+        Path logBinary = null;
+        Path cds = null;
 
         for (String arg : args) {
             String[] parts = arg.split("=", 2);
@@ -64,6 +115,79 @@ public class Main {
                 case "-w":
                     path = value.isBlank() ? Paths.get(".") : Paths.get(value).normalize();
                     break;
+                case "-z":
+                case "--gzip":
+                    gzip = value.isBlank() || Boolean.parseBoolean(value);
+                    break;
+                case "-t":
+                case "--threads":
+                    try { threads = value.isBlank() ? 0 : Integer.parseInt(value); } catch (NumberFormatException _) {
+                        System.err.println("Error: Invalid number of threads '" + value + "'.");
+                        System.exit(1);
+                    }
+                    break;
+                case "-r":
+                case "--run":
+                    runMode = RunMode.fromString(value);
+                    break;
+                case "--workers":
+                    try { workers = Integer.parseInt(value); } catch (NumberFormatException _) { workers = 0; }
+                    if (workers < 1) {
+                        System.err.println("Error: Invalid number of workers '" + value + "'.");
+                        System.exit(1);
+                    }
+                    runMode = RunMode.WORKER;
+                    break;
+                case "--parallel":
+                    try { parallel = Integer.parseInt(value); } catch (NumberFormatException _) { parallel = 0; }
+                    if (parallel < 1) {
+                        System.err.println("Error: Invalid number of parallel runs '" + value + "'.");
+                        System.exit(1);
+                    }
+                    break;
+                case "-R":
+                case "--recursive":
+                    recursive = value.isBlank() || Boolean.parseBoolean(value);
+                    break;
+                case "--no-cache":
+                    cache = false;
+                    break;
+                case "--framed":
+                    framed = value.isBlank() || Boolean.parseBoolean(value);
+                    break;
+                case "--log-async":
+                    try { logAsync = value.isBlank() ? 0 : Long.parseLong(value); } catch (NumberFormatException _) { logAsync = -1; }
+                    if (logAsync < 0) {
+                        System.err.println("Error: Invalid flush interval '" + value + "'.");
+                        System.exit(1);
+                    }
+                    break;
+                case "--log-file":
+                    logFile = value.isBlank() ? Paths.get("lvp.log") : Paths.get(value).normalize();
+                    break;
+                case "--log-roll":
+                    try {
+                        long[] limits = Arrays.stream(value.split(",")).map(String::trim).mapToLong(Long::parseLong).toArray();
+                        if (limits.length != 3 || Arrays.stream(limits).anyMatch(limit -> limit < 1)) throw new NumberFormatException();
+                        logRoll = RollingPolicy.of(limits[0], limits[1], limits[2]);
+                    } catch (NumberFormatException _) {
+                        System.err.println("Error: Invalid log rotation '" + value + "', expected <MB>,<hours>,<total MB>.");
+                        System.exit(1);
+                    }
+                    break;
+                case "--log-binary":
+                    logBinary = value.isBlank() ? Paths.get("lvp-log.bin") : Paths.get(value).normalize();
+                    break;
+                case "--cds":
+                    cds = Paths.get(value);
+                    break;
+                case "--jfr":
+                    jfr = value.isBlank() ? Paths.get(".") : Paths.get(value).normalize();
+                    if (!Files.isDirectory(jfr)) {
+                        System.err.println("Error: JFR directory not found " + jfr);
+                        System.exit(1);
+                    }
+                    break;
                 default:
                     try { port = Integer.parseInt(arg.trim()); } catch(NumberFormatException _) {}
                     break;
@@ -75,7 +199,7 @@ public class Main {
             System.exit(1);
         }
 
-        if (path == null) return new Config(null, null, port, logLevel);
+        if (path == null) return new Config(null, null, port, logLevel, gzip, threads, jfr, runMode, workers, parallel, recursive, cache, framed, logAsync, logFile, logRoll, logBinary, cds);
 
         if (!Files.exists(path)) {
             System.err.println("Error: Path not found " + path);
@@ -92,7 +216,7 @@ public class Main {
             System.exit(1);
         }
 
-        return new Config(path, fileNamePattern != null ? fileNamePattern : fileName.toString(), port, logLevel);
+        return new Config(path, fileNamePattern != null ? fileNamePattern : fileName.toString(), port, logLevel, gzip, threads, jfr, runMode, workers, parallel, recursive, cache, framed, logAsync, logFile, logRoll, logBinary, cds);
     }
 
     public static boolean isLatestRelease() {
@@ -0,0 +1,143 @@
+package lvp;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parameter values of the running script, see {@link lvp.skills.Parameters}. The server sends
+ * the current values with the start of a run and pushes every change while the script runs:
+ * a script process gets them as lines on stdin, a script inside the server directly.
+ * <p>
+ * A value is encoded as {@code base64(name):base64(value)}; the start values are such entries
+ * separated by commas, in {@link #ENV} for a process and after the socket for a worker.
+ */
+public final class ParameterInbox {
+    static final String ENV = "LVP_PARAMETERS";
+
+    // Process-wide default: fed from stdin if the server started the script, empty otherwise
+    private static final class Default {
+        static final ParameterInbox INBOX = fromEnvironment();
+    }
+
+    private static final InheritableThreadLocal<ParameterInbox> current = new InheritableThreadLocal<>() {
+        @Override
+        protected ParameterInbox initialValue() { return Default.INBOX; }
+    };
+
+    private final Map<String, String> values;
+    private final boolean isLive;
+    private long version = 0;
+    private boolean isOpen;
+    private boolean isListening = false;
+
+    ParameterInbox(Map<String, String> values, boolean isLive) {
+        this.values = new HashMap<>(values);
+        this.isLive = isLive;
+        this.isOpen = isLive;
+    }
+
+    public static ParameterInbox current() { return current.get(); }
+    static void set(ParameterInbox inbox) { current.set(inbox); }
+    static void reset() { current.remove(); }
+
+    private static ParameterInbox fromEnvironment() {
+        String start = System.getenv(ENV);
+        if (start == null) return new ParameterInbox(Map.of(), false);
+        return reading(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)), decode(start));
+    }
+
+    // An inbox that takes its changes from the lines of `in` until it ends
+    static ParameterInbox reading(BufferedReader in, Map<String, String> start) {
+        ParameterInbox inbox = new ParameterInbox(start, true);
+        Thread.ofPlatform().name("lvp-parameters").daemon().start(() -> {
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String[] entry = decodeEntry(line);
+                    if (entry != null) inbox.put(entry[0], entry[1]);
+                }
+            } catch (IOException _) {
+            } finally {
+                inbox.close();
+            }
+        });
+        return inbox;
+    }
+
+    public synchronized String get(String name) { return values.get(name); }
+
+    // Whether changes can arrive at all; false for a script that was not started by the server
+    public boolean isLive() { return isLive; }
+
+    public synchronized long version() { return version; }
+
+    // Waits until the values differ from version `seen`; returns the new version, or -1 once no more changes can come
+    public synchronized long awaitChange(long seen) throws InterruptedException {
+        isListening = true;
+        try {
+            while (isOpen && version == seen) wait();
+            return version != seen ? version : -1;
+        } finally {
+            isListening = false;
+        }
+    }
+
+    // Whether the script is waiting for a change, i.e. done with its output for now
+    synchronized boolean isListening() { return isListening; }
+
+    synchronized void put(String name, String value) {
+        values.put(name, value);
+        version++;
+        notifyAll();
+    }
+
+    synchronized void close() {
+        isOpen = false;
+        notifyAll();
+    }
+
+    // Encoding
+
+    static String encode(String name, String value) {
+        Base64.Encoder base64 = Base64.getEncoder();
+        return base64.encodeToString(name.getBytes(StandardCharsets.UTF_8)) + ":" + base64.encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String encode(Map<String, String> values) {
+        StringBuilder encoded = new StringBuilder();
+        values.forEach((name, value) -> {
+            if (!encoded.isEmpty()) encoded.append(',');
+            encoded.append(encode(name, value));
+        });
+        return encoded.toString();
+    }
+
+    static Map<String, String> decode(String encoded) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String part : encoded.split(",")) {
+            String[] entry = decodeEntry(part);
+            if (entry != null) values.put(entry[0], entry[1]);
+        }
+        return values;
+    }
+
+    private static String[] decodeEntry(String encoded) {
+        int colon = encoded.indexOf(':');
+        if (colon < 0) return null;
+        try {
+            Base64.Decoder base64 = Base64.getDecoder();
+            return new String[] {
+                new String(base64.decode(encoded.substring(0, colon)), StandardCharsets.UTF_8),
+                new String(base64.decode(encoded.substring(colon + 1)), StandardCharsets.UTF_8)
+            };
+        } catch (IllegalArgumentException _) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package lvp;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Parameter values set through '/parameter', per script file. They outlive the runs of the
+ * file: each run starts with the current values, and the run in progress is told about every
+ * change, see {@link ParameterInbox}.
+ */
+final class ParameterStore {
+    private final Map<Path, Map<String, String>> values = new HashMap<>();
+    private final Map<Path, BiConsumer<String, String>> listeners = new HashMap<>();
+
+    synchronized void put(Path file, String name, String value) {
+        values.computeIfAbsent(file, _ -> new HashMap<>()).put(name, value);
+        BiConsumer<String, String> listener = listeners.get(file);
+        if (listener != null) listener.accept(name, value);
+    }
+
+    synchronized Map<String, String> snapshot(Path file) {
+        return Map.copyOf(values.getOrDefault(file, Map.of()));
+    }
+
+    // Registers the run in progress of the file; values set since it took its snapshot `known` are handed over right away
+    synchronized void listen(Path file, Map<String, String> known, BiConsumer<String, String> listener) {
+        listeners.put(file, listener);
+        values.getOrDefault(file, Map.of()).forEach((name, value) -> {
+            if (!value.equals(known.get(name))) listener.accept(name, value);
+        });
+    }
+
+    // Only removes the listener if it is still the one of the given run
+    synchronized void unlisten(Path file, BiConsumer<String, String> listener) {
+        listeners.remove(file, listener);
+    }
+}
@@ -0,0 +1,180 @@
+package lvp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import lvp.logging.Logger;
+
+/**
+ * Events of successful script runs, stored on disk under a hash of the script source, its
+ * parameter values and the lvp build. An unchanged script is replayed from here instead of
+ * being executed again. The directory is kept below {@link #MAX_BYTES}: after a store, the
+ * least recently used entries are removed, a replay counts as a use.
+ *
+ * File format: magic "LVPC", format version, event count, then per event the SSEType ordinal,
+ * the payload length and the decoded payload bytes.
+ */
+class ResultCache {
+    record Entry(SSEType type, byte[] data) {}
+
+    private static final int MAGIC = 0x4C565043; // "LVPC"
+    private static final short FORMAT = 1;
+    private static final SSEType[] types = SSEType.values();
+    static final long MAX_BYTES = 256L << 20;
+
+    private final Path directory;
+    private final byte[] build;
+    private final long maxBytes;
+
+    ResultCache(Path directory) {
+        this(directory, MAX_BYTES);
+    }
+
+    ResultCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.build = buildId().getBytes(StandardCharsets.UTF_8);
+        this.maxBytes = maxBytes;
+    }
+
+    static Path defaultDirectory() {
+        return Path.of(System.getProperty("user.home"), ".lvp", "cache");
+    }
+
+    // Version of the lvp jar; size and modification time tell apart local builds of the same version
+    private static String buildId() {
+        String version = String.valueOf(ResultCache.class.getPackage().getImplementationVersion());
+        try {
+            Path jar = FileWatcher.jarLocation();
+            return version + ":" + Files.size(jar) + ":" + Files.getLastModifiedTime(jar).toMillis();
+        } catch (Exception _) {
+            return version;
+        }
+    }
+
+    // The parameters are sorted by name, the same values always give the same key
+    String key(byte[] source, Map<String, String> parameters) {
+        byte[] values = ParameterInbox.encode(new TreeMap<>(parameters)).getBytes(StandardCharsets.UTF_8);
+        byte[] content = new byte[build.length + 1 + source.length + 1 + values.length];
+        System.arraycopy(build, 0, content, 0, build.length);
+        System.arraycopy(source, 0, content, build.length + 1, source.length);
+        System.arraycopy(values, 0, content, build.length + 1 + source.length + 1, values.length);
+        return HexFormat.of().formatHex(FileIndex.hash(content));
+    }
+
+    // Returns null on a miss or an unreadable entry
+    List<Entry> load(String key) {
+        Path file = directory.resolve(key + ".lvpc");
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readShort() != FORMAT) return null;
+            int count = in.readInt();
+            List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int type = in.readUnsignedByte();
+                if (type >= types.length) return null;
+                byte[] data = new byte[in.readInt()];
+                in.readFully(data);
+                entries.add(new Entry(types[type], data));
+            }
+            touch(file);
+            return entries;
+        } catch (NoSuchFileException _) {
+            return null;
+        } catch (EOFException _) {
+            Logger.logError("Truncated cache entry " + file);
+            return null;
+        } catch (IOException e) {
+            Logger.logError("Could not read cache entry " + file, e);
+            return null;
+        }
+    }
+
+    // Written to a temporary file first, so parallel runs never see a half-written entry
+    void store(String key, List<Entry> entries) {
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, key, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeShort(FORMAT);
+                out.writeInt(entries.size());
+                for (Entry entry : entries) {
+                    out.writeByte(entry.type().ordinal());
+                    out.writeInt(entry.data().length);
+                    out.write(entry.data());
+                }
+            }
+            Path file = directory.resolve(key + ".lvpc");
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException _) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            Logger.logError("Could not write cache entry " + key, e);
+            return;
+        }
+        prune();
+    }
+
+    // The modification time of an entry is the time of its last use
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException _) {
+            // the entry is just evicted earlier
+        }
+    }
+
+    private record Stored(Path file, long size, FileTime used) {}
+
+    // Removes the least recently used entries until the rest fits into maxBytes
+    private synchronized void prune() {
+        List<Stored> stored = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.lvpc")) {
+            for (Path file : files) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    stored.add(new Stored(file, attributes.size(), attributes.lastModifiedTime()));
+                    total += attributes.size();
+                } catch (NoSuchFileException _) {
+                    // removed in the meantime
+                }
+            }
+        } catch (IOException e) {
+            Logger.logError("Could not list cache entries in " + directory, e);
+            return;
+        }
+        if (total <= maxBytes) return;
+        stored.sort(Comparator.comparing(Stored::used));
+        for (Stored entry : stored) {
+            if (total <= maxBytes) break;
+            try {
+                Files.deleteIfExists(entry.file());
+                total -= entry.size();
+            } catch (IOException e) {
+                Logger.logError("Could not remove cache entry " + entry.file(), e);
+            }
+        }
+        Logger.logDebug("Result cache pruned to {} bytes", total);
+    }
+}
@@ -0,0 +1,16 @@
+package lvp;
+
+// How the FileWatcher executes a watched script
+public enum RunMode {
+    PROCESS,     // a fresh `java` process per run (default)
+    IN_PROCESS,  // compiled and run inside the server JVM
+    WORKER;      // handed to one of several pre-started, warmed-up JVMs
+
+    public static RunMode fromString(String input) {
+        return switch (input.trim().toLowerCase()) {
+            case "inprocess", "in-process", "in_process" -> IN_PROCESS;
+            case "worker", "workers" -> WORKER;
+            default -> PROCESS;
+        };
+    }
+}
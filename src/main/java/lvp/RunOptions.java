@@ -0,0 +1,24 @@
+package lvp;
+
+import java.util.List;
+
+/**
+ * Settings for executing watched scripts.
+ *
+ * @param mode       how scripts are executed
+ * @param jvmOptions additional options for every spawned `java` process
+ * @param workers    number of idle worker JVMs kept ready in {@link RunMode#WORKER}
+ * @param parallel   number of watched files that may run at the same time
+ * @param recursive  whether subdirectories of the watched directory are watched as well
+ * @param cache      whether events of successful runs are cached and replayed for unchanged sources
+ * @param framed     whether script processes send events as binary frames over a Unix domain socket
+ */
+public record RunOptions(RunMode mode, List<String> jvmOptions, int workers, int parallel, boolean recursive, boolean cache, boolean framed) {
+    public RunOptions {
+        jvmOptions = List.copyOf(jvmOptions);
+    }
+
+    public static RunOptions defaults() { return new RunOptions(RunMode.PROCESS, List.of(), 2, defaultParallel(), false, true, false); }
+
+    public static int defaultParallel() { return Math.max(2, Runtime.getRuntime().availableProcessors()); }
+}
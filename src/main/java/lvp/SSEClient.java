@@ -0,0 +1,102 @@
+package lvp;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import lvp.metrics.Counter;
+
+/**
+ * A connected browser listening on '/events'. All writes go through this class so that
+ * an optional gzip stream wraps the response body exactly once per connection.
+ */
+class SSEClient {
+    private final HttpExchange exchange;
+    private final OutputStream out;
+    private final boolean isCompressed;
+    private final LongAdder bytesSent;
+
+    private SSEClient(HttpExchange exchange, OutputStream out, boolean isCompressed, LongAdder bytesSent) {
+        this.exchange = exchange;
+        this.out = out;
+        this.isCompressed = isCompressed;
+        this.bytesSent = bytesSent;
+    }
+
+    // Sends the response headers and opens the (possibly compressed) event stream
+    static SSEClient open(HttpExchange exchange, boolean allowCompression, Counter totalBytesSent) throws IOException {
+        boolean compress = allowCompression && acceptsGzip(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+        exchange.getResponseHeaders().add("Connection", "keep-alive");
+        if (compress) {
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.getResponseHeaders().add("Vary", "Accept-Encoding");
+        }
+        exchange.sendResponseHeaders(200, 0);
+
+        // Counting below the gzip stream measures what actually goes onto the wire
+        LongAdder bytesSent = new LongAdder();
+        OutputStream body = new FilterOutputStream(exchange.getResponseBody()) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                bytesSent.add(len);
+                totalBytesSent.add(len);
+            }
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                bytesSent.increment();
+                totalBytesSent.increment();
+            }
+        };
+        // syncFlush: every flush() emits a complete deflate block, so the browser can decode events immediately
+        return new SSEClient(exchange, compress ? new GZIPOutputStream(body, 8192, true) : body, compress, bytesSent);
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        return Arrays.stream(acceptEncoding.split(","))
+            .map(String::trim)
+            .anyMatch(coding -> {
+                String[] parts = coding.split(";");
+                if (!parts[0].trim().equalsIgnoreCase("gzip")) return false;
+                for (int i = 1; i < parts.length; i++) {
+                    String param = parts[i].trim();
+                    if (param.startsWith("q=")) {
+                        try { return Double.parseDouble(param.substring(2)) > 0; } catch (NumberFormatException _) { return false; }
+                    }
+                }
+                return true;
+            });
+    }
+
+    // Writes without flushing; use flush() to finish a batch
+    synchronized void write(byte[] frame) throws IOException {
+        out.write(frame);
+    }
+
+    synchronized void send(byte[] frame) throws IOException {
+        out.write(frame);
+        out.flush();
+    }
+
+    synchronized void flush() throws IOException {
+        out.flush();
+    }
+
+    boolean isCompressed() { return isCompressed; }
+    long bytesSent() { return bytesSent.sum(); }
+    HttpExchange exchange() { return exchange; }
+    Object remoteAddress() { return exchange.getRemoteAddress(); }
+
+    void close() {
+        exchange.close();
+    }
+}
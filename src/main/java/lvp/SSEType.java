@@ -1,3 +1,3 @@
 package lvp;
 
-public enum SSEType { WRITE, CALL, SCRIPT, LOAD, CLEAR, DEBUG, LOG; }
\ No newline at end of file
+public enum SSEType { WRITE, CALL, SCRIPT, LOAD, CLEAR, DEBUG, LOG, LIVE; }
\ No newline at end of file
@@ -0,0 +1,61 @@
+package lvp;
+
+import java.nio.file.Path;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Handle of one run of a watched script. A newer change cancels the older run: its process
+ * is killed or its script thread interrupted, and the server drops any output that still
+ * arrives under the old generation.
+ * <p>
+ * A run holds one of the `--parallel` slots while it executes. A live script, see
+ * {@link lvp.skills.Parameters#live}, runs until the file changes, so it gives its slot back
+ * once it waits for parameter changes.
+ */
+class ScriptRun {
+    final Path path;
+    final long generation;
+    private volatile boolean isCancelled = false;
+    private volatile Process process;
+    private volatile Thread thread;
+    private Semaphore slot;
+
+    ScriptRun(Path path, long generation) {
+        this.path = path;
+        this.generation = generation;
+    }
+
+    void attach(Process process) {
+        this.process = process;
+        if (isCancelled) destroy(process);
+    }
+
+    void attach(Thread thread) {
+        this.thread = thread;
+        if (isCancelled) thread.interrupt();
+    }
+
+    void cancel() {
+        isCancelled = true;
+        Process p = process;
+        if (p != null) destroy(p);
+        Thread t = thread;
+        if (t != null) t.interrupt();
+    }
+
+    boolean isCancelled() { return isCancelled; }
+
+    synchronized void holdSlot(Semaphore slots) { slot = slots; }
+
+    // Gives the slot back once; called when the run ends and when its script goes live
+    synchronized void releaseSlot() {
+        if (slot == null) return;
+        slot.release();
+        slot = null;
+    }
+
+    private static void destroy(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+}
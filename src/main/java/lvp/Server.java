@@ -2,33 +2,96 @@ package lvp;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.stream.IntStream;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
 
+import lvp.jfr.EventReadEvent;
+import lvp.jfr.FanOutEvent;
+import lvp.jfr.FileUpdateEvent;
 import lvp.logging.LogLevel;
 import lvp.logging.Logger;
+import lvp.metrics.Counter;
+import lvp.metrics.Histogram;
+import lvp.metrics.Metrics;
 
 
 public class Server {
-    private enum ReplacementType {
+    enum ReplacementType {
         SINGLE, MULTI, BLOCK
     }
-    private record EventMessage(SSEType event, String data) {}
+    // An event encoded once as a complete SSE frame ("data: TYPE:base64\n\n"), shared by all clients and the replay
+    private record EventMessage(SSEType event, byte[] frame) {
+        static final byte[] PREFIX = "data: ".getBytes(StandardCharsets.US_ASCII);
+        static final byte[] SUFFIX = "\n\n".getBytes(StandardCharsets.US_ASCII);
+
+        static EventMessage of(SSEType event, byte[] base64Data) {
+            byte[] name = event.name().getBytes(StandardCharsets.US_ASCII);
+            byte[] frame = new byte[PREFIX.length + name.length + 1 + base64Data.length + SUFFIX.length];
+            int pos = put(frame, 0, PREFIX);
+            pos = put(frame, pos, name);
+            frame[pos++] = ':';
+            pos = put(frame, pos, base64Data);
+            put(frame, pos, SUFFIX);
+            return new EventMessage(event, frame);
+        }
+
+        // The line is already "TYPE:base64" and is copied into the frame as is
+        static EventMessage ofLine(SSEType event, byte[] line, int length) {
+            byte[] frame = new byte[PREFIX.length + length + SUFFIX.length];
+            put(frame, 0, PREFIX);
+            System.arraycopy(line, 0, frame, PREFIX.length, length);
+            put(frame, PREFIX.length + length, SUFFIX);
+            return new EventMessage(event, frame);
+        }
+
+        private static int put(byte[] target, int pos, byte[] source) {
+            System.arraycopy(source, 0, target, pos, source.length);
+            return pos + source.length;
+        }
+
+        int payloadSize() { return frame.length - PREFIX.length - SUFFIX.length - event.name().length() - 1; }
+        String payload() {
+            int offset = PREFIX.length + event.name().length() + 1;
+            return new String(frame, offset, frame.length - offset - SUFFIX.length, StandardCharsets.US_ASCII);
+        }
+    }
+    private static final SSEType[] sseTypes = SSEType.values();
+    private static final byte[][] sseTypeNames = Arrays.stream(sseTypes)
+        .map(type -> type.name().getBytes(StandardCharsets.US_ASCII))
+        .toArray(byte[][]::new);
+
+    private static final Map<SSEType, Counter> eventsReceived = new EnumMap<>(SSEType.class);
+    static {
+        for (SSEType type : SSEType.values())
+            eventsReceived.put(type, Metrics.counter("lvp_events_received_total", "Clerk events read from scripts", "type", type.name()));
+    }
+    private static final Counter bytesSent = Metrics.counter("lvp_sse_bytes_sent_total", "Bytes written to all SSE clients, after compression");
+    private static final Histogram interactLatency = Metrics.histogram("lvp_interact_latency_seconds", "Time to handle an /interact request, the file update follows within the coalescing window", Histogram.LATENCY_BUCKETS);
+    private static final Counter fileWrites = Metrics.counter("lvp_interact_writes_total", "Source file writes for interactions");
+    private static final Counter parameterUpdates = Metrics.counter("lvp_parameter_updates_total", "Parameter values set through '/parameter'");
+    private final LongAdder pendingWrites = new LongAdder();
 
     private final HttpServer httpServer;
+    private final ExecutorService executor;
 
     final int port;
     static int defaultPort = 50_001;
@@ -37,25 +100,89 @@ public class Server {
     static void setDefaultPort(int port) { defaultPort = port != 0 ? Math.abs(port) : 50_001; }
     static int getDefaultPort() { return defaultPort; }
 
-    public final List<HttpExchange> webClients = new CopyOnWriteArrayList<>(); // thread-safe variant of ArrayList;
-    List<EventMessage> events = new CopyOnWriteArrayList<>();
+    // Replays, writes to stalled clients and bursts of posts can occupy every thread of a
+    // small fixed pool; with virtual threads a blocked handler does not hold back others.
+    static ExecutorService defaultExecutor() { return Executors.newVirtualThreadPerTaskExecutor(); }
+    static ExecutorService executorFor(int threads) {
+        return threads > 0 ? Executors.newFixedThreadPool(threads) : defaultExecutor();
+    }
+
+    // Every watched file has its own channel; '/events' without a file parameter gets the default channel.
+    // Until a file runs, the default channel is not bound to any file and the first one to run takes it over;
+    // it is always in `channels`, at first under the empty name.
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final Channel defaultChannel = new Channel();
+    private boolean isDefaultBound = false;
+
+    // Label index and rewriting of the sources changed through '/interact'
+    private final SourceEditor sourceEditor = new SourceEditor();
+    private final UpdateCoalescer interactions = new UpdateCoalescer(this::updateFile);
+    // Values of '/parameter', pushed to the running scripts without touching their sources
+    final ParameterStore parameters = new ParameterStore();
+
+    // Output of superseded script runs is dropped by its generation
+    static final long ANY_GENERATION = -1;
+    private static final Counter eventsDropped = Metrics.counter("lvp_events_dropped_total", "Late events of superseded script runs");
 
     boolean isVerbose = false;
+    boolean isCompressing = false;
 
     public Server(int port, boolean isVerbose) throws IOException {
-        this.port = port;
+        this(port, isVerbose, false, defaultExecutor());
+    }
+
+    public Server(int port, boolean isVerbose, boolean isCompressing, ExecutorService executor) throws IOException {
         this.isVerbose = isVerbose;
+        this.isCompressing = isCompressing;
+        this.executor = executor;
+        channels.put("", defaultChannel);
 
         httpServer = HttpServer.create(new InetSocketAddress("localhost", port), 0);
-        System.out.println("Open http://localhost:" + port + " in your browser");
+        this.port = httpServer.getAddress().getPort(); // port 0 picks a free one
+        System.out.println("Open http://localhost:" + this.port + " in your browser");
 
         httpServer.createContext("/log", this::handleLog);
         httpServer.createContext("/interact", this::handleInteract);
+        httpServer.createContext("/parameter", this::handleParameter);
         httpServer.createContext("/events", this::handleEvents);
+        httpServer.createContext("/metrics", this::handleMetrics);
         httpServer.createContext("/", this::handleRoot);
 
-        httpServer.setExecutor(Executors.newFixedThreadPool(5));
+        httpServer.setExecutor(executor);
         httpServer.start();
+        registerMetrics();
+    }
+
+    private void registerMetrics() {
+        Metrics.gauge("lvp_sse_clients", "Connected SSE clients", () -> clients().count());
+        Metrics.gauge("lvp_sse_queue_depth", "SSE writes currently in flight", pendingWrites::sum);
+        Metrics.gauge("lvp_replay_events", "Events kept for replay to new clients",
+            () -> channels.values().stream().mapToLong(channel -> channel.events.size()).sum());
+        Metrics.gauge("lvp_replay_bytes", "Payload bytes kept for replay to new clients",
+            () -> channels.values().stream().flatMap(channel -> channel.events.stream()).mapToLong(event -> event.frame().length).sum());
+        Metrics.counters("lvp_sse_client_bytes_sent_total", "Bytes written per SSE client, after compression",
+            () -> clients().collect(Collectors.toMap(
+                client -> Metrics.label("client", client.remoteAddress()), SSEClient::bytesSent, Long::sum)));
+    }
+
+    Stream<SSEClient> clients() {
+        return channels.values().stream().flatMap(channel -> channel.clients.stream());
+    }
+
+    // The channel of a watched file, created on first use; the first file gets the default channel
+    synchronized Channel channel(String file) {
+        Channel channel = channels.get(file);
+        if (channel != null) return channel;
+        channel = isDefaultBound ? new Channel() : defaultChannel;
+        channels.put(file, channel);
+        if (!isDefaultBound) channels.remove("");
+        isDefaultBound = true;
+        return channel;
+    }
+
+    // The channel a client asks for: the default one without a file, null for a file that is not watched
+    private Channel lookup(String file) {
+        return file == null || file.isEmpty() ? defaultChannel : channels.get(file);
     }
 
     private void handleLog(HttpExchange exchange) throws IOException {
@@ -77,6 +204,15 @@ public class Server {
     }
 
     private void handleInteract(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        try {
+            interact(exchange);
+        } finally {
+            interactLatency.observeSince(start);
+        }
+    }
+
+    private void interact(HttpExchange exchange) throws IOException {
         String message = readRequestBody(exchange);
         if (message == null) return;
         String[] parts = message.split(":", 4);
@@ -103,7 +239,40 @@ public class Server {
         }
         
         String replacement = new String(Base64.getDecoder().decode(parts[3]), StandardCharsets.UTF_8);
-        updateFile(path, label, rType.get(), replacement);
+        interactions.submit(Path.of(path).toAbsolutePath().normalize(), new SourceEditor.Edit(label, rType.get(), replacement));
+    }
+
+    // Body: base64(path):base64(name):base64(value)
+    private void handleParameter(HttpExchange exchange) throws IOException {
+        String message = readRequestBody(exchange);
+        if (message == null) return;
+        String[] parts = message.split(":", 3);
+        if (parts.length != 3) {
+            exchange.sendResponseHeaders(400, -1); // Bad Request
+            exchange.close();
+            Logger.logError("Illegal parameter message: " + message);
+            return;
+        }
+
+        String path, name, value;
+        try {
+            Base64.Decoder base64 = Base64.getDecoder();
+            path = new String(base64.decode(parts[0]), StandardCharsets.UTF_8);
+            name = new String(base64.decode(parts[1]), StandardCharsets.UTF_8);
+            value = new String(base64.decode(parts[2]), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException _) {
+            exchange.sendResponseHeaders(400, -1); // Bad Request
+            exchange.close();
+            Logger.logError("Illegal parameter message: " + message);
+            return;
+        }
+
+        exchange.sendResponseHeaders(200, 0);
+        exchange.close();
+
+        parameters.put(Path.of(path).toAbsolutePath().normalize(), name, value);
+        parameterUpdates.increment();
+        Logger.logDebug("Parameter {} of {} changed", name, path);
     }
 
     private void handleEvents(HttpExchange exchange) throws IOException {
@@ -113,17 +282,44 @@ public class Server {
             return;
         }
 
-        Logger.logInfo("New SSE Exchange for '" + exchange.getLocalAddress() + "' at '" + exchange.getRemoteAddress() + "'");
-        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
-        exchange.getResponseHeaders().add("Cache-Control", "no-cache");
-        exchange.getResponseHeaders().add("Connection", "keep-alive");
-        exchange.sendResponseHeaders(200, 0);
+        Channel channel = lookup(queryParameter(exchange, "file"));
+        if (channel == null) {
+            exchange.sendResponseHeaders(404, -1); // Not Found
+            exchange.close();
+            Logger.logError("No watched file '{}' in '/events'", queryParameter(exchange, "file"));
+            return;
+        }
 
-        if (isVerbose) sendMessageToClient(exchange, SSEType.DEBUG, "");
+        Logger.logInfo("New SSE Exchange for '{}' at '{}'", exchange.getLocalAddress(), exchange.getRemoteAddress());
+        SSEClient client = SSEClient.open(exchange, isCompressing, bytesSent);
+        if (client.isCompressed()) Logger.logDebug("Compressing SSE Exchange at '{}' with gzip", exchange.getRemoteAddress());
+        channel.connect(client);
+    }
+
+    private static String queryParameter(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) return null;
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith(name + "=")) return URLDecoder.decode(parameter.substring(name.length() + 1), StandardCharsets.UTF_8);
+        }
+        return null;
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equalsIgnoreCase("get")) {
+            exchange.sendResponseHeaders(405, -1); // Method Not Allowed
+            Logger.logError("Method not allowed in '/metrics'");
+            return;
+        }
 
-        webClients.add(exchange);
-        if (!events.isEmpty()) {
-            events.forEach(event -> sendMessageToClient(exchange, event.event, event.data));
+        try {
+            final byte[] bytes = Metrics.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.getResponseBody().flush();
+        } finally {
+            exchange.close();
         }
     }
 
@@ -135,7 +331,7 @@ public class Server {
         }
 
         final String resourcePath = exchange.getRequestURI().getPath().equals("/") ? INDEX : exchange.getRequestURI().getPath();
-        Logger.logDebug("Sending '" + resourcePath + "'");
+        Logger.logDebug("Sending '{}'", resourcePath);
 
         try (final InputStream stream = Server.class.getResourceAsStream(resourcePath)) {
             final byte[] bytes = stream.readAllBytes();
@@ -149,39 +345,192 @@ public class Server {
     }
 
     public void read(String message) {
-        String[] parts = message.split(":", 2);
-        Optional<SSEType> event = Optional.empty();
-        if (parts.length == 2) {
-            event = Arrays.stream(SSEType.values())
-                .filter(sseType -> sseType.name().equals(parts[0]))
-                .findFirst();
-        }
-        if (event.isEmpty()) Logger.logError("Error: + " + message);
+        byte[] line = message.getBytes(StandardCharsets.UTF_8);
+        read(line, line.length);
+    }
 
-        SSEType eventMessage = event.orElse(SSEType.LOG);
-        String data = event.isEmpty() ? Base64.getEncoder().encodeToString(message.getBytes(StandardCharsets.UTF_8)) : parts[1];
+    public void read(byte[] line, int length) {
+        defaultChannel.read(line, length, ANY_GENERATION);
+    }
 
-        events.add(new EventMessage(eventMessage, data));
-        if (webClients.isEmpty()) return;        
-        sendServerEvent(eventMessage, data);
+    private static SSEType typeOf(byte[] line, int length) {
+        for (int i = 0; i < sseTypes.length; i++) {
+            byte[] name = sseTypeNames[i];
+            if (length > name.length && line[name.length] == ':' && Arrays.equals(line, 0, name.length, name, 0, name.length))
+                return sseTypes[i];
+        }
+        return null;
     }
 
     public void sendServerEvent(SSEType sseType, String data) {
-        webClients.removeIf(connection -> !sendMessageToClient(connection, sseType, data));
+        defaultChannel.send(EventMessage.of(sseType, data.getBytes(StandardCharsets.UTF_8)));
     }
 
-    private boolean sendMessageToClient(HttpExchange connection, SSEType event, String data) {
-        Logger.logDebug("Event: " + event + " with data: " + data);
+    /**
+     * Clients and replay history of one watched file. Appending an event and sending it to the
+     * clients happen under the channel lock, so a reset or a newly connected client never sees
+     * an event twice or in the wrong order.
+     */
+    final class Channel {
+        final List<SSEClient> clients = new CopyOnWriteArrayList<>(); // thread-safe variant of ArrayList;
+        final List<EventMessage> events = new CopyOnWriteArrayList<>();
+        private long generation = 0;
+        private int liveAt = -1; // where the events of a live section being redrawn go in the history
+
+        private Channel() {}
+
+        // Starts a new run: clears the replay history and drops events of all earlier generations.
+        // A run that is older than the current one is refused, so a superseded run cannot take over again.
+        synchronized boolean reset(long generation) {
+            if (generation < this.generation) return false;
+            this.generation = generation;
+            events.clear();
+            liveAt = -1;
+            return true;
+        }
+
+        // Reads one line of Clerk output ("TYPE:base64") without decoding it; unknown lines are forwarded as LOG
+        void read(byte[] line, int length, long generation) {
+            SSEType type = typeOf(line, length);
+            EventMessage event;
+            if (type != null) {
+                event = EventMessage.ofLine(type, line, length);
+            } else {
+                Logger.logError("Error: {}", new String(line, 0, length, StandardCharsets.UTF_8));
+                type = SSEType.LOG;
+                event = EventMessage.of(type, Base64.getEncoder().encode(Arrays.copyOf(line, length)));
+            }
+            publish(event, generation);
+        }
+
+        void read(String message, long generation) {
+            byte[] line = message.getBytes(StandardCharsets.UTF_8);
+            read(line, line.length, generation);
+        }
+
+        // Entry point for scripts running inside the server JVM; the data is already Base64-encoded
+        void publish(SSEType type, byte[] base64Data, long generation) {
+            publish(EventMessage.of(type, base64Data), generation);
+        }
+
+        private synchronized void publish(EventMessage event, long generation) {
+            if (generation != ANY_GENERATION && generation != this.generation) {
+                eventsDropped.increment();
+                return;
+            }
+            eventsReceived.get(event.event()).increment();
+
+            EventReadEvent readEvent = new EventReadEvent();
+            if (readEvent.shouldCommit()) {
+                readEvent.type = event.event().name();
+                readEvent.payloadSize = event.payloadSize();
+                readEvent.commit();
+            }
+
+            record(event);
+            if (clients.isEmpty()) return;
+            send(event);
+        }
+
+        // A live section is drawn again on every parameter change; the new drawing replaces the
+        // old one in the history, so a live script does not grow it and a new client sees it once
+        private void record(EventMessage event) {
+            if (event.event() != SSEType.LIVE) {
+                if (liveAt < 0) events.add(event);
+                else events.add(liveAt++, event);
+                return;
+            }
+            String id = event.payload();
+            if (id.isEmpty()) { // end of the section
+                events.add(liveAt < 0 ? events.size() : liveAt, event);
+                liveAt = -1;
+                return;
+            }
+            int start = indexOfLive(id, 0);
+            if (start < 0) {
+                events.add(event);
+                liveAt = events.size();
+                return;
+            }
+            int end = indexOfLive("", start);
+            events.subList(start, end < 0 ? events.size() : end + 1).clear();
+            events.add(start, event);
+            liveAt = start + 1;
+        }
+
+        private int indexOfLive(String id, int from) {
+            for (int i = from; i < events.size(); i++) {
+                EventMessage event = events.get(i);
+                if (event.event() == SSEType.LIVE && event.payload().equals(id)) return i;
+            }
+            return -1;
+        }
+
+        private void send(EventMessage event) {
+            // A constant template lets structured destinations store only the arguments
+            if (Logger.isEnabled(LogLevel.Debug)) Logger.logDebug("Event: {} with data: {}", event.event(), event.payload());
+            FanOutEvent fanOut = new FanOutEvent();
+            fanOut.begin();
+            int clientCount = clients.size();
+            clients.removeIf(connection -> !sendMessageToClient(connection, event.frame()));
+            fanOut.end();
+            if (fanOut.shouldCommit()) {
+                fanOut.type = event.event().name();
+                fanOut.clients = clientCount;
+                fanOut.messageSize = event.frame().length;
+                fanOut.commit();
+            }
+        }
+
+        // Events of the given run in decoded form, or null if a newer run has started since
+        synchronized List<ResultCache.Entry> history(long generation) {
+            if (generation != this.generation) return null;
+            try {
+                return events.stream()
+                    .map(event -> new ResultCache.Entry(event.event(), Base64.getDecoder().decode(event.payload())))
+                    .toList();
+            } catch (IllegalArgumentException _) {
+                return null; // a line with a type prefix but without valid Base64 data
+            }
+        }
+
+        // Starts the run with events of an earlier identical run instead of executing it
+        synchronized boolean replay(List<ResultCache.Entry> entries, long generation) {
+            if (!reset(generation)) return false;
+            for (ResultCache.Entry entry : entries) {
+                publish(EventMessage.of(entry.type(), Base64.getEncoder().encode(entry.data())), generation);
+            }
+            return true;
+        }
+
+        // The replay is written as one batch and flushed once, so gzip can compress across events
+        synchronized void connect(SSEClient client) {
+            clients.add(client);
+            try {
+                if (isVerbose) client.write(EventMessage.of(SSEType.DEBUG, new byte[0]).frame());
+                for (EventMessage event : events) {
+                    client.write(event.frame());
+                }
+                client.flush();
+            } catch (IOException _) {
+                Logger.logError("Web exchange '" + client.remoteAddress() + "' did not respond. Closing...");
+                clients.remove(client);
+                client.close();
+            }
+        }
+    }
+
+    private boolean sendMessageToClient(SSEClient connection, byte[] frame) {
+        pendingWrites.increment();
         try {
-            String message = "data: " + event + ":" + data + "\n\n";
-            OutputStream os = connection.getResponseBody();
-            os.write(message.getBytes(StandardCharsets.UTF_8));
-            os.flush();
+            connection.send(frame);
             return true;
         } catch (IOException _) {
-            Logger.logError("Web exchange '" + connection.getRemoteAddress() + "' did not respond. Closing...");
+            Logger.logError("Web exchange '" + connection.remoteAddress() + "' did not respond. Closing...");
             connection.close();
             return false;
+        } finally {
+            pendingWrites.decrement();
         }
     }
 
@@ -222,75 +571,26 @@ public class Server {
         return null;
     }
 
-    private void updateFile(String path, String label, ReplacementType rType, String replacement) {
+    private void updateFile(Path path, List<SourceEditor.Edit> edits) {
+        FileUpdateEvent updateEvent = new FileUpdateEvent();
+        updateEvent.begin();
+        updateEvent.path = path.toString();
+        updateEvent.label = edits.stream().map(SourceEditor.Edit::label).collect(Collectors.joining(", "));
+        updateEvent.replacementType = edits.stream().map(edit -> edit.type().name()).distinct().collect(Collectors.joining(", "));
         try {
-            Path filePath = Path.of(path);
-            List<String> lines = Files.readAllLines(filePath, StandardCharsets.UTF_8);
-            switch (rType) {
-                case SINGLE:
-                    updateSingleLine(lines, label, replacement);
-                    break;
-                case MULTI:
-                    updateMultiLine(lines, label, replacement);
-                    break;
-                default:
-                    break;
-            }
-            Files.write(filePath, lines, StandardCharsets.UTF_8);
+            if (sourceEditor.replace(path, edits)) fileWrites.increment();
         } catch (IOException e) {
             Logger.logError("Error updating file: " + path, e);
+        } finally {
+            updateEvent.commit();
         }
     }
 
-    private void updateSingleLine(List<String> lines, String label, String replacement) {
-        for (int i = 0; i < lines.size(); i++) {
-            if (lines.get(i).trim().endsWith(label)) {
-                String line = lines.get(i);
-                int spaces = (int) IntStream.range(0, line.length())
-                    .takeWhile(pos -> line.charAt(pos) == ' ')
-                    .count();
-                lines.set(i, " ".repeat(spaces) + replacement + " " + label);
-            }
-        }
-    }
-
-    private void updateMultiLine(List<String> lines, String label, String replacement) {
-        int openingLabel = -1;
-        int closingLabel = -1;
-        for (int i = 0; i < lines.size(); i++) {
-            if (lines.get(i).trim().equals(label)) {
-                if (openingLabel == -1) {
-                    openingLabel = i;
-                } else {
-                    closingLabel = i;
-                    break;
-                }
-            }
-        }
-        if (openingLabel == -1 || closingLabel == -1) {
-            Logger.logError("Labels not found for multi-line replacement: " + label);
-            return;
-        }
-        if (closingLabel <= openingLabel) {
-            Logger.logError("Closing label is before opening label for multi-line replacement: " + label);
-            return;
-        }
-        String startingLine = lines.get(openingLabel + 1);
-        int spaces = (int) IntStream.range(0, startingLine.length())
-                    .takeWhile(pos -> startingLine.charAt(pos) == ' ')
-                    .count();
-
-        for (int i = openingLabel + 1; i < closingLabel; i++) {
-            lines.remove(openingLabel + 1);
-        }
-        lines.add(openingLabel + 1, " ".repeat(spaces) + replacement);
-    }
-
     public void stop() {
         Logger.logInfo("Closing Server on port '" + port + "'");
-        for (HttpExchange connection : webClients) {
-            connection.close();
-        }
+        interactions.stop();
+        clients().forEach(SSEClient::close);
         httpServer.stop(0);
+        executor.shutdownNow();
     }
 }
\ No newline at end of file
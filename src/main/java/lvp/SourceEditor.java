@@ -0,0 +1,245 @@
+package lvp;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lvp.Server.ReplacementType;
+import lvp.logging.Logger;
+
+/**
+ * Rewrites labelled lines of a source file for '/interact'. Each file is kept in memory as bytes
+ * with its line offsets and, per label, the lines the label is on. A slider tick therefore only
+ * looks up the label, splices the replaced lines into the bytes and writes the result to a temp
+ * file that takes over the permissions and owner of the source and is renamed over it; several
+ * edits of one file are written together. The
+ * cache is dropped when the modification time or the size of the file on disk no longer match,
+ * i.e. someone else edited it.
+ */
+final class SourceEditor {
+    private record Key(ReplacementType type, String label) {
+        // Same rules as before: SINGLE labels end a trimmed line, MULTI labels are a trimmed line of their own
+        boolean matches(byte[] content, int start, int end, byte[] bytes) {
+            while (start < end && (content[start] & 0xFF) <= ' ') start++;
+            while (end > start && (content[end - 1] & 0xFF) <= ' ') end--;
+            if (type == ReplacementType.MULTI && end - start != bytes.length) return false;
+            return end - start >= bytes.length && Arrays.equals(content, end - bytes.length, end, bytes, 0, bytes.length);
+        }
+
+        byte[] bytes() { return label.getBytes(StandardCharsets.UTF_8); }
+    }
+
+    /**
+     * @param lineStarts offset of every line, followed by the length of the content
+     * @param labels the lines each label looked up so far is on, in ascending order
+     */
+    private record Source(FileTime modified, long size, byte[] content, int[] lineStarts, Map<Key, int[]> labels) {
+        int lines() { return lineStarts.length - 1; }
+
+        // End of the line's text, without its line break
+        int end(int line) {
+            int end = lineStarts[line + 1];
+            if (end > lineStarts[line] && content[end - 1] == '\n') end--;
+            if (end > lineStarts[line] && content[end - 1] == '\r') end--;
+            return end;
+        }
+
+        int[] find(Key key) {
+            return labels.computeIfAbsent(key, k -> {
+                byte[] bytes = k.bytes();
+                int[] found = new int[8];
+                int count = 0;
+                for (int line = 0; line < lines(); line++) {
+                    if (!k.matches(content, lineStarts[line], end(line), bytes)) continue;
+                    if (count == found.length) found = Arrays.copyOf(found, count * 2);
+                    found[count++] = line;
+                }
+                return Arrays.copyOf(found, count);
+            });
+        }
+
+        int indent(int line) {
+            int start = lineStarts[line];
+            int end = end(line);
+            int spaces = 0;
+            while (start + spaces < end && content[start + spaces] == ' ') spaces++;
+            return spaces;
+        }
+
+        byte[] lineBreak(int line) {
+            return Arrays.copyOfRange(content, end(line), lineStarts[line + 1]);
+        }
+    }
+
+    private final Map<Path, Source> sources = new ConcurrentHashMap<>();
+    private final Map<Path, Object> locks = new ConcurrentHashMap<>();
+
+    record Edit(String label, ReplacementType type, String replacement) {}
+
+    // Applies the edits in order and writes the file once; false if none of the labels was found
+    boolean replace(Path path, List<Edit> edits) throws IOException {
+        Path file = path.toAbsolutePath().normalize();
+        synchronized (lockFor(file)) {
+            Source source = load(file);
+            boolean isChanged = false;
+            for (Edit edit : edits) {
+                Source updated = switch (edit.type()) {
+                    case SINGLE -> replaceSingle(source, edit.label(), edit.replacement());
+                    case MULTI -> replaceMulti(source, edit.label(), edit.replacement());
+                    case BLOCK -> null; // has never changed the file
+                };
+                if (updated == null) continue;
+                source = updated;
+                isChanged = true;
+            }
+            if (isChanged) write(file, source);
+            return isChanged;
+        }
+    }
+
+    private Object lockFor(Path file) { return locks.computeIfAbsent(file, _ -> new Object()); }
+
+    private Source load(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        Source cached = sources.get(file);
+        if (cached != null && cached.modified().equals(attributes.lastModifiedTime()) && cached.size() == attributes.size()) return cached;
+
+        byte[] content = Files.readAllBytes(file);
+        Source source = new Source(attributes.lastModifiedTime(), content.length, content, lineStarts(content), new HashMap<>());
+        sources.put(file, source);
+        return source;
+    }
+
+    private static int[] lineStarts(byte[] content) {
+        int lines = 0;
+        for (byte b : content) if (b == '\n') lines++;
+        boolean isTerminated = content.length == 0 || content[content.length - 1] == '\n';
+        int[] starts = new int[lines + (isTerminated ? 0 : 1) + 1];
+        int line = 1;
+        for (int i = 0; i < content.length; i++) {
+            if (content[i] == '\n' && i + 1 < content.length) starts[line++] = i + 1;
+        }
+        starts[starts.length - 1] = content.length;
+        return starts;
+    }
+
+    // Every line ending with the label becomes "<indent><replacement> <label>"
+    private Source replaceSingle(Source source, String label, String replacement) {
+        int[] lines = source.find(new Key(ReplacementType.SINGLE, label));
+        if (lines.length == 0) {
+            Logger.logError("Label not found for single-line replacement: {}", label);
+            return null;
+        }
+        // From the last line backwards, so the line numbers of the earlier ones stay valid
+        for (int i = lines.length - 1; i >= 0; i--) {
+            int line = lines[i];
+            String text = " ".repeat(source.indent(line)) + replacement + " " + label;
+            source = splice(source, line, line + 1, concat(text.getBytes(StandardCharsets.UTF_8), source.lineBreak(line)));
+        }
+        return source;
+    }
+
+    // The lines between the first two label lines become "<indent><replacement>"
+    private Source replaceMulti(Source source, String label, String replacement) {
+        int[] lines = source.find(new Key(ReplacementType.MULTI, label));
+        if (lines.length < 2) {
+            Logger.logError("Labels not found for multi-line replacement: {}", label);
+            return null;
+        }
+        int opening = lines[0];
+        int closing = lines[1];
+        String text = " ".repeat(source.indent(opening + 1)) + replacement;
+        return splice(source, opening + 1, closing, concat(text.getBytes(StandardCharsets.UTF_8), source.lineBreak(opening)));
+    }
+
+    // Replaces the lines [from, to) with the given bytes and moves the line offsets and labels behind them
+    private static Source splice(Source source, int from, int to, byte[] replacement) {
+        int start = source.lineStarts()[from];
+        int end = source.lineStarts()[to];
+        byte[] old = source.content();
+        byte[] content = new byte[old.length - (end - start) + replacement.length];
+        System.arraycopy(old, 0, content, 0, start);
+        System.arraycopy(replacement, 0, content, start, replacement.length);
+        System.arraycopy(old, end, content, start + replacement.length, old.length - end);
+        int byteShift = content.length - old.length;
+
+        int[] inserted = lineStarts(replacement);
+        int added = inserted.length - 1;
+        int lineShift = added - (to - from);
+        int[] oldStarts = source.lineStarts();
+        int[] lineStarts = new int[oldStarts.length + lineShift];
+        System.arraycopy(oldStarts, 0, lineStarts, 0, from);
+        for (int i = 0; i < added; i++) lineStarts[from + i] = start + inserted[i];
+        for (int i = to; i < oldStarts.length; i++) lineStarts[i + lineShift] = oldStarts[i] + byteShift;
+
+        Source updated = new Source(source.modified(), content.length, content, lineStarts, new HashMap<>());
+        source.labels().forEach((key, lines) -> {
+            int[] moved = new int[lines.length + added];
+            int count = 0;
+            for (int line : lines) if (line < from) moved[count++] = line;
+            byte[] bytes = key.bytes();
+            for (int line = from; line < from + added; line++) if (key.matches(content, lineStarts[line], updated.end(line), bytes)) moved[count++] = line;
+            for (int line : lines) if (line >= to) moved[count++] = line + lineShift;
+            updated.labels().put(key, Arrays.copyOf(moved, count));
+        });
+        return updated;
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] both = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, both, first.length, second.length);
+        return both;
+    }
+
+    // Readers, the FileWatcher included, see either the old or the new file, never a partial one.
+    // The temp file is hidden, so the watcher ignores it. A symlink stays in place, the file it
+    // points to is replaced.
+    private void write(Path file, Source source) throws IOException {
+        Path target = file.toRealPath();
+        Path temp = target.resolveSibling("." + target.getFileName() + ".lvp-tmp");
+        Files.write(temp, source.content());
+        try {
+            if (takesOverAttributes(target, temp)) {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.delete(temp);
+                Files.write(target, source.content());
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            sources.remove(file);
+            throw e;
+        }
+        FileTime modified = Files.getLastModifiedTime(file);
+        sources.put(file, new Source(modified, source.size(), source.content(), source.lineStarts(), source.labels()));
+    }
+
+    // Gives the temp file the permissions, owner and group of the file it replaces; false if it
+    // cannot have the same owner, e.g. a file of another user that is writable for us, which is
+    // then written in place
+    private static boolean takesOverAttributes(Path file, Path temp) throws IOException {
+        PosixFileAttributeView view = Files.getFileAttributeView(file, PosixFileAttributeView.class);
+        if (view == null) return true; // not POSIX, e.g. Windows: the new file inherits from the directory
+        PosixFileAttributes attributes = view.readAttributes();
+        PosixFileAttributeView tempView = Files.getFileAttributeView(temp, PosixFileAttributeView.class);
+        tempView.setPermissions(attributes.permissions());
+        try {
+            tempView.setOwner(attributes.owner());
+            tempView.setGroup(attributes.group());
+            return true;
+        } catch (IOException _) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package lvp;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// The text protocol ("TYPE:base64" lines) with buffering; a flush is a single write to stdout
+class StdoutSink extends BufferedSink {
+    private final PrintStream out;
+
+    private StdoutSink(PrintStream out) {
+        this.out = out;
+    }
+
+    // Lines the script prints itself would overtake the buffered events, so System.out becomes
+    // a stream that sends the buffered events before each write
+    static StdoutSink create() {
+        StdoutSink sink = new StdoutSink(System.out);
+        System.setOut(new PrintStream(new FilterOutputStream(sink.out) {
+            @Override
+            public void write(int b) throws IOException {
+                sink.flush();
+                out.write(b);
+            }
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                sink.flush();
+                out.write(b, off, len);
+            }
+        }, true, sink.out.charset()));
+        sink.start();
+        return sink;
+    }
+
+    @Override
+    protected void encode(SSEType event, byte[] data) {
+        append(event.name().getBytes(StandardCharsets.US_ASCII));
+        append((byte) ':');
+        append(Base64.getEncoder().encode(data));
+        append((byte) '\n');
+    }
+
+    @Override
+    protected void write(byte[] bytes, int length) {
+        out.write(bytes, 0, length);
+        out.flush();
+    }
+}
@@ -0,0 +1,60 @@
+package lvp;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import lvp.SourceEditor.Edit;
+import lvp.metrics.Counter;
+import lvp.metrics.Metrics;
+
+/**
+ * Collects '/interact' updates per file for {@link #WINDOW_MILLIS}. A slider posts on every input
+ * event; within the window only the latest replacement per label is kept and all labels of a
+ * file are applied together, so each window costs one write and one change for the FileWatcher.
+ * The window starts with the first update, so a continuous drag still writes every window.
+ */
+final class UpdateCoalescer {
+    static final long WINDOW_MILLIS = 50;
+    private static final Counter coalesced = Metrics.counter("lvp_interact_coalesced_total", "Interactions superseded by a later one for the same label before they were written");
+
+    private final BiConsumer<Path, List<Edit>> apply;
+    private final Map<Path, Map<String, Edit>> pending = new HashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("lvp-interact").daemon().factory());
+
+    UpdateCoalescer(BiConsumer<Path, List<Edit>> apply) {
+        this.apply = apply;
+    }
+
+    synchronized void submit(Path path, Edit edit) {
+        Map<String, Edit> edits = pending.get(path);
+        if (edits == null) {
+            edits = new LinkedHashMap<>();
+            pending.put(path, edits);
+            timer.schedule(() -> flush(path), WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        // Keeps the label's first position, so labels are still applied in the order they arrived
+        if (edits.put(edit.label(), edit) != null) coalesced.increment();
+    }
+
+    private void flush(Path path) {
+        Map<String, Edit> edits;
+        synchronized (this) { edits = pending.remove(path); }
+        if (edits != null) apply.accept(path, List.copyOf(edits.values()));
+    }
+
+    // Writes what is still pending, so the last position of a slider is not lost
+    void stop() {
+        timer.shutdown(); // a write in progress finishes, the remaining windows find nothing to do
+        List<Path> paths;
+        synchronized (this) { paths = new ArrayList<>(pending.keySet()); }
+        paths.forEach(this::flush);
+    }
+}
@@ -0,0 +1,44 @@
+package lvp;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Entry point of a pre-started script JVM ({@code --run=worker}). The worker loads and warms
+ * up the lvp classes and the compiler, then waits for the path of a script on stdin, runs it
+ * once with the usual stdout protocol and exits. The path is followed by a tab, the socket for
+ * the events with {@code --framed}, another tab and the parameter values of the script.
+ * The {@link WorkerPool} starts the next one.
+ * With {@code --warmup} it exits right after warming up; {@link CdsArchive} uses this as the
+ * training run for the class data sharing archive.
+ */
+public class Worker {
+    private static final String[] PRELOAD = {
+        "lvp.Clerk", "lvp.SSEType", "lvp.skills.Text", "lvp.skills.Interaction", "lvp.views.MarkdownIt",
+        "lvp.views.Turtle", "lvp.views.Dot", "lvp.functionPlotter.plotter.FunctionPlotter",
+        "lvp.functionPlotter.parser.Parser", "lvp.functionPlotter.parser.Tokenizer"
+    };
+
+    public static void main(String[] args) throws Exception {
+        InProcessRunner runner = new InProcessRunner();
+        for (String name : PRELOAD) Class.forName(name, true, Worker.class.getClassLoader());
+        runner.warmUp();
+        if (args.length > 0 && args[0].equals("--warmup")) return;
+
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line = in.readLine();
+        if (line == null || line.isBlank()) return; // pool was shut down
+
+        // Parameter changes follow as further lines on stdin
+        String[] parts = line.split("\t", -1);
+        ClerkSink sink = parts.length > 1 && !parts[1].isEmpty() ? FramedSink.connect(parts[1]) : ClerkSinks.current();
+        ParameterInbox parameters = ParameterInbox.reading(in, parts.length > 2 ? ParameterInbox.decode(parts[2]) : Map.of());
+        boolean completed = runner.run(Path.of(parts[0]), sink, parameters, System.out::println, _ -> {});
+        sink.flush();
+        System.out.flush();
+        System.exit(completed ? 0 : 1);
+    }
+}
@@ -0,0 +1,83 @@
+package lvp;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lvp.logging.Logger;
+
+// Keeps a number of started and warmed-up worker JVMs ready; each one runs a single script.
+// A worker that fails to start is tried again; if none is ready in time, take() starts one itself.
+class WorkerPool {
+    private static final int START_ATTEMPTS = 3;
+    private static final long TAKE_TIMEOUT_SECONDS = 5;
+
+    private final int size;
+    private final List<String> command;
+    private final LinkedBlockingQueue<Process> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger starting = new AtomicInteger();
+    private final ExecutorService starter = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile boolean isRunning = true;
+
+    WorkerPool(int size, List<String> command) {
+        this.size = size;
+        this.command = List.copyOf(command);
+        Logger.logInfo("Starting " + size + " worker(s): " + String.join(" ", command));
+        for (int i = 0; i < size; i++) replenish();
+    }
+
+    // Hands out the next idle worker and starts its replacement in the background
+    Process take() throws IOException, InterruptedException {
+        Process worker = idle.poll(TAKE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        while (worker != null && !worker.isAlive()) {
+            Logger.logError("Worker " + worker.pid() + " died before use (exit code " + worker.exitValue() + ")");
+            replenish();
+            worker = idle.poll();
+        }
+        replenish();
+        if (worker != null) return worker;
+        Logger.logError("No live worker ready within " + TAKE_TIMEOUT_SECONDS + " s, starting a fresh one");
+        return start();
+    }
+
+    private Process start() throws IOException {
+        return new ProcessBuilder(command).redirectErrorStream(true).start();
+    }
+
+    // Starts a worker in the background unless the ready and starting ones already fill the pool
+    private synchronized void replenish() {
+        if (!isRunning || idle.size() + starting.get() >= size) return;
+        starting.incrementAndGet();
+        starter.execute(() -> {
+            try {
+                for (int attempt = 1; isRunning; attempt++) {
+                    try {
+                        Process worker = start();
+                        if (isRunning) idle.add(worker);
+                        else worker.destroy();
+                        return;
+                    } catch (IOException e) {
+                        Logger.logError("Could not start worker (attempt " + attempt + " of " + START_ATTEMPTS + ")", e);
+                        if (attempt == START_ATTEMPTS) return; // take() falls back to a fresh process
+                        Thread.sleep(100L << attempt);
+                    }
+                }
+            } catch (InterruptedException _) {
+                // the pool is shut down
+            } finally {
+                starting.decrementAndGet();
+            }
+        });
+    }
+
+    void shutdown() {
+        isRunning = false;
+        starter.shutdownNow();
+        Process worker;
+        while ((worker = idle.poll()) != null) worker.destroy();
+    }
+}
@@ -1,6 +1,7 @@
 package lvp.functionPlotter.plotter;
 
 import lvp.Clerk;
+import lvp.jfr.PlotterPhaseEvent;
 import lvp.views.Dot;
 import lvp.views.Turtle;
 import lvp.functionPlotter.ast.*;
@@ -80,12 +81,17 @@ public class FunctionPlotter {
     public void drawExpressionAST(String expression) {
         try {
             // Ausdruck analysieren, um den AST zu erstellen
+            PlotterPhaseEvent parseEvent = new PlotterPhaseEvent(PlotterPhaseEvent.PARSE, expression);
+            parseEvent.begin();
             Expr ast = Parser.parse(expression);
+            parseEvent.commit();
 
             // Dot für die Zeichnung des Graphen initialisieren
             Dot dot = new Dot();
 
             // DOT-Graph für den AST generieren
+            PlotterPhaseEvent serializeEvent = new PlotterPhaseEvent(PlotterPhaseEvent.SERIALIZE, expression);
+            serializeEvent.begin();
             String dotGraph = generateASTDotGraph(ast);
 
             // Ursprünglichen Ausdruck über dem Graphen anzeigen
@@ -93,6 +99,7 @@ public class FunctionPlotter {
 
             // Graph mit Dot zeichnen
             dot.draw(dotGraph);
+            serializeEvent.commit();
 
         } catch (ParseException e) {
             Clerk.markdown("**Analysefehler**: " + e.getMessage());
@@ -116,7 +123,10 @@ public class FunctionPlotter {
      * Gibt die Turtle-Ansicht aus.
      */
     public void writeTurtle() {
+        PlotterPhaseEvent serializeEvent = new PlotterPhaseEvent(PlotterPhaseEvent.SERIALIZE, null);
+        serializeEvent.begin();
         turtle.write();
+        serializeEvent.commit();
     }
 
     /**
@@ -135,8 +145,11 @@ public class FunctionPlotter {
 
         // Funktion-Ausdruck in ein Expr-Objekt parsen
         Expr function = null;
+        PlotterPhaseEvent parseEvent = new PlotterPhaseEvent(PlotterPhaseEvent.PARSE, functionExpression);
+        parseEvent.begin();
         try {
             function = Parser.parse(functionExpression);
+            parseEvent.commit();
         } catch (ParseException e) {
             System.out.println("Fehler beim Parsen des Funktionsausdrucks: " + e.getMessage());
             return turtle; // Turtle ohne Zeichnung zurückgeben, wenn das Parsen fehlschlägt
@@ -148,6 +161,8 @@ public class FunctionPlotter {
         assert function != null : "Funktionsausdruck darf nicht null sein";
         String variableName = extractVariableName(functionExpression);
 
+        PlotterPhaseEvent sampleEvent = new PlotterPhaseEvent(PlotterPhaseEvent.SAMPLE, functionExpression);
+        sampleEvent.begin();
         for (double xMath = xFrom; xMath <= xTo; xMath += stepSize) {
             try {
                 // Berechne den Y-Wert der Funktion für den aktuellen X-Wert
@@ -177,6 +192,8 @@ public class FunctionPlotter {
             }
         }
 
+        sampleEvent.commit();
+
         turtle.pop();
         return turtle;
     }
@@ -0,0 +1,20 @@
+package lvp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("lvp.EventRead")
+@Label("Clerk Event Read")
+@Category({"Live View Programming", "Server"})
+@Description("A Clerk event read from a script and stored for replay")
+public class EventReadEvent extends jdk.jfr.Event {
+    @Label("Type")
+    public String type;
+
+    @Label("Payload Size")
+    @DataAmount
+    public long payloadSize;
+}
@@ -0,0 +1,23 @@
+package lvp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("lvp.FanOut")
+@Label("SSE Fan-Out")
+@Category({"Live View Programming", "Server"})
+@Description("Sending one event to all connected SSE clients")
+public class FanOutEvent extends jdk.jfr.Event {
+    @Label("Type")
+    public String type;
+
+    @Label("Clients")
+    public int clients;
+
+    @Label("Message Size")
+    @DataAmount
+    public long messageSize;
+}
@@ -0,0 +1,21 @@
+package lvp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("lvp.FileUpdate")
+@Label("File Update")
+@Category({"Live View Programming", "Server"})
+@Description("Rewrite of a source file requested by an interaction")
+public class FileUpdateEvent extends jdk.jfr.Event {
+    @Label("Path")
+    public String path;
+
+    @Label("Label")
+    public String label;
+
+    @Label("Replacement Type")
+    public String replacementType;
+}
@@ -0,0 +1,27 @@
+package lvp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("lvp.PlotterPhase")
+@Label("Function Plotter Phase")
+@Category({"Live View Programming", "Function Plotter"})
+@Description("Parsing, sampling or serializing in the FunctionPlotter")
+public class PlotterPhaseEvent extends jdk.jfr.Event {
+    public static final String PARSE = "parse";
+    public static final String SAMPLE = "sample";
+    public static final String SERIALIZE = "serialize";
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Expression")
+    public String expression;
+
+    public PlotterPhaseEvent(String phase, String expression) {
+        this.phase = phase;
+        this.expression = expression;
+    }
+}
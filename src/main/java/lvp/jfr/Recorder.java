@@ -0,0 +1,54 @@
+package lvp.jfr;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.List;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import lvp.logging.Logger;
+
+/**
+ * Starts a Flight Recording of the server JVM for the '--jfr' option and knows the
+ * JVM option that makes spawned scripts record into the same directory.
+ */
+public class Recorder {
+    private final Recording recording;
+    private final Path directory;
+
+    private Recorder(Recording recording, Path directory) {
+        this.recording = recording;
+        this.directory = directory;
+    }
+
+    public static Recorder start(Path directory) throws IOException {
+        Recording recording;
+        try {
+            recording = new Recording(Configuration.getConfiguration("default"));
+        } catch (ParseException e) {
+            throw new IOException("Could not read the default JFR configuration", e);
+        }
+        recording.setName("lvp");
+        recording.setToDisk(true);
+        recording.setDestination(directory.resolve("lvp-server.jfr"));
+        for (Class<?> event : List.of(ScriptStartEvent.class, ScriptFirstOutputEvent.class, ScriptRunEvent.class,
+                EventReadEvent.class, FanOutEvent.class, FileUpdateEvent.class, PlotterPhaseEvent.class)) {
+            recording.enable(event.getName());
+        }
+        recording.start();
+        Logger.logInfo("Flight Recording started, writing to " + directory.resolve("lvp-server.jfr").toAbsolutePath());
+        return new Recorder(recording, directory);
+    }
+
+    // Scripts get their own recording per process, named by pid and start time
+    public String childOption() {
+        return "-XX:StartFlightRecording=settings=default,filename=" + directory.resolve("lvp-script-%p-%t.jfr").toAbsolutePath();
+    }
+
+    public void stop() {
+        recording.stop(); // writes the recording to its destination
+        recording.close();
+        Logger.logInfo("Flight Recording written to " + recording.getDestination());
+    }
+}
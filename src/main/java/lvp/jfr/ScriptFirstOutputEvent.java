@@ -0,0 +1,15 @@
+package lvp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("lvp.ScriptFirstOutput")
+@Label("Script First Output")
+@Category({"Live View Programming", "Watcher"})
+@Description("Time from spawning a script until its first line of output")
+public class ScriptFirstOutputEvent extends jdk.jfr.Event {
+    @Label("Path")
+    public String path;
+}
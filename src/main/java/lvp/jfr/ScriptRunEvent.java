@@ -0,0 +1,22 @@
+package lvp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("lvp.ScriptRun")
+@Label("Script Run")
+@Category({"Live View Programming", "Watcher"})
+@Description("Whole run of a watched script, from spawn to exit")
+public class ScriptRunEvent extends jdk.jfr.Event {
+    @Label("Path")
+    public String path;
+
+    @Label("Exit Code")
+    @Description("Exit code of the process, -1 if it was killed after the timeout")
+    public int exitCode;
+
+    @Label("Lines")
+    public long lines;
+}
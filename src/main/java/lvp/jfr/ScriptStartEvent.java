@@ -0,0 +1,18 @@
+package lvp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("lvp.ScriptStart")
+@Label("Script Start")
+@Category({"Live View Programming", "Watcher"})
+@Description("Time needed to spawn the process for a watched script")
+public class ScriptStartEvent extends jdk.jfr.Event {
+    @Label("Path")
+    public String path;
+
+    @Label("Process Id")
+    public long pid;
+}
@@ -0,0 +1,133 @@
+package lvp.logging;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Async mode of the {@link Logger}: callers only put the raw entry into a ring buffer, a single
+ * consumer thread takes the time stamp formatting, the string formatting and the writes off
+ * their hands and writes up to {@link #MAX_BATCH} messages at once.
+ */
+final class AsyncLog {
+    private record Pending(Instant time, LogLevel level, String template, Object[] args, Throwable error) {}
+
+    static final int MAX_BATCH = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final RingBuffer<Pending> ring;
+    private final FlushPolicy policy;
+    private final List<LogDestination> destinations;
+    private final Thread consumer;
+    private volatile boolean isRunning = true;
+    private volatile boolean isSleeping = false;
+
+    AsyncLog(int capacity, FlushPolicy policy, List<LogDestination> destinations) {
+        this.ring = new RingBuffer<>(capacity);
+        this.policy = policy;
+        this.destinations = destinations;
+        this.consumer = Thread.ofPlatform().name("lvp-log").daemon().start(this::consume);
+    }
+
+    // Waits while the buffer is full, so no message is lost
+    void publish(LogLevel level, String template, Object[] args, Throwable error) {
+        Pending entry = new Pending(Instant.now(), level, template, args, error);
+        for (int attempt = 0; !ring.offer(entry); attempt++) {
+            LockSupport.unpark(consumer);
+            // Spinning only helps while the consumer has a core of its own
+            if (attempt < 16) Thread.yield();
+            else LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+        if (isSleeping) LockSupport.unpark(consumer);
+    }
+
+    private void consume() {
+        StringBuilder batch = new StringBuilder(1 << 14);
+        long lastFlush = System.nanoTime();
+        boolean isDirty = false;
+        while (isRunning || !ring.isEmpty()) {
+            int count = 0;
+            Pending entry;
+            boolean hasText = false;
+            while (count < MAX_BATCH && (entry = ring.poll()) != null) {
+                String formatted = null;
+                for (LogDestination destination : destinations) {
+                    if (destination instanceof StructuredDestination structured) {
+                        log(structured, entry);
+                    } else if (formatted == null) {
+                        LocalDateTime time = LocalDateTime.ofInstant(entry.time(), Logger.ZONE);
+                        formatted = Logger.format(time, entry.level(), Logger.fill(entry.template(), entry.args()), entry.error());
+                    }
+                }
+                if (formatted != null) {
+                    if (hasText) batch.append(System.lineSeparator());
+                    batch.append(formatted);
+                    hasText = true;
+                }
+                Logger.count(entry.level(), formatted);
+                count++;
+            }
+            if (hasText) {
+                write(batch.toString());
+                batch.setLength(0);
+                isDirty = true;
+            }
+            long sinceFlush = System.nanoTime() - lastFlush;
+            long interval = TimeUnit.MILLISECONDS.toNanos(policy.intervalMillis());
+            if (isDirty && sinceFlush >= interval) {
+                flush();
+                isDirty = false;
+                lastFlush = System.nanoTime();
+            }
+            if (count == 0) {
+                isSleeping = true;
+                if (ring.isEmpty() && isRunning) LockSupport.parkNanos(isDirty ? interval - sinceFlush : IDLE_PARK_NANOS);
+                isSleeping = false;
+            }
+        }
+        flush();
+    }
+
+    private static void log(StructuredDestination destination, Pending entry) {
+        try {
+            destination.log(Logger.epochNanos(entry.time()), entry.level(), entry.template(), entry.args(), entry.error());
+        } catch (RuntimeException e) {
+            System.err.println("Logging failed: " + e.getMessage());
+        }
+    }
+
+    private void write(String batch) {
+        for (LogDestination destination : destinations) {
+            if (destination instanceof StructuredDestination) continue;
+            try {
+                destination.write(batch);
+            } catch (RuntimeException e) {
+                System.err.println("Logging failed: " + e.getMessage()); // the consumer must survive, or producers wait forever
+            }
+        }
+    }
+
+    private void flush() {
+        for (LogDestination destination : destinations) {
+            try {
+                destination.flush();
+            } catch (RuntimeException e) {
+                System.err.println("Logging failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // Writes everything that is still queued and ends the consumer
+    void close() {
+        isRunning = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join();
+        } catch (InterruptedException _) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
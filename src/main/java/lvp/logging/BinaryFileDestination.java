@@ -0,0 +1,152 @@
+package lvp.logging;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.BufferOverflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes log entries unformatted into a memory-mapped file, to be read with {@link LogDecoder}.
+ * Each message template is written once and referenced by its id afterwards, so an entry
+ * costs little more than its time stamp and arguments. Long messages without arguments are
+ * written inline every time.
+ * <p>
+ * Format: the header {@link #MAGIC} and {@link #VERSION} (4 bytes each), then records that
+ * start with a tag byte:
+ * <ul>
+ * <li>{@link #TEMPLATE}: int id, string template</li>
+ * <li>{@link #ENTRY}: long epoch nanos, byte level, int template id ({@link #INLINE} is followed
+ *     by the string template), byte argument count, the arguments, byte 1 and a string stack
+ *     trace or byte 0</li>
+ * </ul>
+ * Strings are an int length and UTF-8 bytes. An argument is a type byte and its value. The
+ * zero-filled rest of the mapping reads as {@link #END}.
+ */
+public class BinaryFileDestination implements StructuredDestination {
+    static final int MAGIC = 0x4C56504C; // "LVPL"
+    static final int VERSION = 1;
+    static final byte END = 0, TEMPLATE = 1, ENTRY = 2;
+    static final byte NULL = 0, LONG = 1, DOUBLE = 2, BOOLEAN = 3, STRING = 4;
+    static final int INLINE = -1;
+
+    private static final long CHUNK = 16 << 20;
+    // Beyond this, templates are most likely not constant and are written inline
+    private static final int MAX_TEMPLATES = 1 << 16;
+    // A message without arguments is only kept as a template if it is this short, longer ones
+    // are mostly built from their data, e.g. a line of script output
+    private static final int MAX_PLAIN_LENGTH = 128;
+
+    private final FileChannel channel;
+    private final Lock lock = new ReentrantLock();
+    private final Map<String, Integer> templates = new HashMap<>();
+    private MappedByteBuffer buffer;
+    private long mappedAt;
+    private boolean isClosed = false;
+
+    public static BinaryFileDestination of(Path path) throws IOException { return new BinaryFileDestination(path); }
+    private BinaryFileDestination(Path path) throws IOException {
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            System.err.println("Failed to open file: " + path);
+            throw e;
+        }
+        map(0, CHUNK);
+        buffer.putInt(MAGIC).putInt(VERSION);
+    }
+
+    @Override
+    public void log(long epochNanos, LogLevel level, String template, Object[] args, Throwable error) {
+        lock.lock();
+        try {
+            if (isClosed) return;
+            Integer id = templates.get(template);
+            if (id == null && templates.size() < MAX_TEMPLATES && (args.length > 0 || template.length() <= MAX_PLAIN_LENGTH)) {
+                id = templates.size();
+                int newId = id;
+                append(() -> { buffer.put(TEMPLATE).putInt(newId); putString(template); });
+                templates.put(template, id);
+            }
+            int templateId = id == null ? INLINE : id;
+            append(() -> {
+                buffer.put(ENTRY).putLong(epochNanos).put((byte) level.ordinal()).putInt(templateId);
+                if (templateId == INLINE) putString(template);
+                buffer.put((byte) args.length);
+                for (Object arg : args) putArg(arg);
+                buffer.put((byte) (error != null ? 1 : 0));
+                if (error != null) putString(stackTrace(error));
+            });
+        } catch (IOException e) {
+            System.err.println("Logging to file failed: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A record that does not fit is written again at the start of a new, large enough mapping
+    private void append(Runnable record) throws IOException {
+        long offset = mappedAt + buffer.position();
+        for (long size = CHUNK; ; size *= 2) {
+            try {
+                record.run();
+                return;
+            } catch (BufferOverflowException _) {
+                map(offset, size);
+            }
+        }
+    }
+
+    private void map(long offset, long size) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, offset, size);
+        mappedAt = offset;
+    }
+
+    private void putArg(Object arg) {
+        switch (arg) {
+            case null -> buffer.put(NULL);
+            case Long value -> buffer.put(LONG).putLong(value);
+            case Integer value -> buffer.put(LONG).putLong(value);
+            case Short value -> buffer.put(LONG).putLong(value);
+            case Byte value -> buffer.put(LONG).putLong(value);
+            case Double value -> buffer.put(DOUBLE).putDouble(value);
+            case Boolean value -> buffer.put(BOOLEAN).put((byte) (value ? 1 : 0));
+            default -> { buffer.put(STRING); putString(String.valueOf(arg)); }
+        }
+    }
+
+    private void putString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    private static String stackTrace(Throwable error) {
+        StringWriter trace = new StringWriter();
+        error.printStackTrace(new PrintWriter(trace));
+        return trace.toString();
+    }
+
+    // Cuts the file after the last record
+    public void close() {
+        lock.lock();
+        try {
+            if (isClosed) return;
+            isClosed = true;
+            buffer.force();
+            channel.truncate(mappedAt + buffer.position());
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Closing log file failed: " + e.getMessage()); // the zero-filled rest still reads as the end
+        } finally {
+            lock.unlock();
+        }
+    }
+}
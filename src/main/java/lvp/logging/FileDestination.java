@@ -35,4 +35,29 @@ public class FileDestination implements LogDestination {
         }
     }
 
+    @Override
+    public void write(String formattedMessages) {
+        lock.lock();
+        try {
+            writer.write(formattedMessages);
+            writer.newLine();
+        } catch (IOException e) {
+            System.err.println("Logging to file failed: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void flush() {
+        lock.lock();
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            System.err.println("Logging to file failed: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
 }
\ No newline at end of file
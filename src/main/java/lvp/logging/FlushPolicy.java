@@ -0,0 +1,13 @@
+package lvp.logging;
+
+/**
+ * When the async logger flushes its destinations: after every batch it wrote, or at most once
+ * per interval. Everything is flushed when the async mode is stopped.
+ *
+ * @param intervalMillis minimum time between two flushes, 0 flushes after every batch
+ */
+public record FlushPolicy(long intervalMillis) {
+    public static final FlushPolicy EVERY_BATCH = new FlushPolicy(0);
+
+    public static FlushPolicy every(long millis) { return new FlushPolicy(Math.max(0, millis)); }
+}
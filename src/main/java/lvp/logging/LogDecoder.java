@@ -0,0 +1,95 @@
+package lvp.logging;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns a log written by {@link BinaryFileDestination} back into the text the {@link Logger}
+ * would have written: {@code java -cp lvp.jar lvp.logging.LogDecoder lvp-log.bin}
+ */
+public class LogDecoder {
+    private final ByteBuffer buffer;
+    private final List<String> templates = new ArrayList<>();
+
+    LogDecoder(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.remaining() < 8 || buffer.getInt() != BinaryFileDestination.MAGIC) throw new IOException("Not a binary log file");
+        int version = buffer.getInt();
+        if (version != BinaryFileDestination.VERSION) throw new IOException("Unsupported binary log version " + version);
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("Usage: java -cp lvp.jar lvp.logging.LogDecoder <file>");
+            System.exit(1);
+        }
+        try (FileChannel channel = FileChannel.open(Path.of(args[0]), StandardOpenOption.READ);
+             Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)) {
+            new LogDecoder(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())).decode(out);
+        } catch (IOException e) {
+            System.err.println("Error decoding " + args[0] + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // Writes one formatted message per entry until the end of the records
+    void decode(Writer out) throws IOException {
+        while (buffer.hasRemaining()) {
+            byte tag = buffer.get();
+            switch (tag) {
+                case BinaryFileDestination.END -> { return; }
+                case BinaryFileDestination.TEMPLATE -> {
+                    int id = buffer.getInt();
+                    if (id != templates.size()) throw new IOException("Unexpected template id " + id);
+                    templates.add(getString());
+                }
+                case BinaryFileDestination.ENTRY -> {
+                    out.write(entry());
+                    out.write(System.lineSeparator());
+                }
+                default -> throw new IOException("Corrupt record at offset " + (buffer.position() - 1));
+            }
+        }
+    }
+
+    private String entry() {
+        long epochNanos = buffer.getLong();
+        LogLevel level = LogLevel.values()[buffer.get()];
+        int id = buffer.getInt();
+        String template = id == BinaryFileDestination.INLINE ? getString() : templates.get(id);
+        Object[] args = new Object[Byte.toUnsignedInt(buffer.get())];
+        for (int i = 0; i < args.length; i++) args[i] = getArg();
+        String trace = buffer.get() != 0 ? getString() : null;
+
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochSecond(0, epochNanos), Logger.ZONE);
+        String formatted = Logger.format(time, level, Logger.fill(template, args), null);
+        return trace == null ? formatted : formatted + System.lineSeparator() + trace;
+    }
+
+    private Object getArg() {
+        return switch (buffer.get()) {
+            case BinaryFileDestination.LONG -> buffer.getLong();
+            case BinaryFileDestination.DOUBLE -> buffer.getDouble();
+            case BinaryFileDestination.BOOLEAN -> buffer.get() != 0;
+            case BinaryFileDestination.STRING -> getString();
+            default -> null;
+        };
+    }
+
+    private String getString() {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
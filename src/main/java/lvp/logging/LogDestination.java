@@ -2,4 +2,8 @@ package lvp.logging;
 
 public interface LogDestination {
     void log(String formattedMessage);
+
+    // Used in async mode: one or more lines without flushing; flush() follows according to the FlushPolicy
+    default void write(String formattedMessages) { log(formattedMessages); }
+    default void flush() {}
 }
\ No newline at end of file
@@ -2,11 +2,19 @@ package lvp.logging;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Function;
+import java.util.function.Supplier;
+
+import lvp.metrics.Counter;
+import lvp.metrics.Metrics;
 
 
 public class Logger {
@@ -15,8 +23,19 @@ public class Logger {
     public static Function<LogEntry, String> stringFormatter = entry -> String.format("[%s] [%s] %s", entry.time(), entry.level(), entry.message());
 
     // Configuration
-    private static LogLevel minLogLevel = LogLevel.Error;
+    private static volatile LogLevel minLogLevel = LogLevel.Error;
     private static final List<LogDestination> destinations = new CopyOnWriteArrayList<>(List.of(ConsoleDestination.of()));  // Initializes with ConsoleDestination as the default logging output
+    private static volatile AsyncLog async = null;
+    static final Object[] NO_ARGS = {};
+    static final ZoneId ZONE = ZoneId.systemDefault();
+
+    // Throughput, exported on '/metrics'
+    private static final Map<LogLevel, Counter> messagesLogged = new EnumMap<>(LogLevel.class);
+    private static final Counter charsLogged = Metrics.counter("lvp_log_chars_total", "Characters of formatted log output");
+    static {
+        for (LogLevel level : LogLevel.values())
+            messagesLogged.put(level, Metrics.counter("lvp_log_messages_total", "Log messages written", "level", level.name()));
+    }
 
     private Logger() {}
 
@@ -24,34 +43,104 @@ public class Logger {
     // Configuration
     public static void setLogLevel(LogLevel level) { minLogLevel = level; }
     public static void addDestination(LogDestination destination) { destinations.add(destination); }
+    public static void removeDestination(LogDestination destination) { destinations.remove(destination); }
+
+    // Async mode: log calls only enqueue the entry; a background thread formats and writes in batches
+    public static synchronized void startAsync(int capacity, FlushPolicy policy) {
+        if (async != null) return;
+        async = new AsyncLog(capacity, policy, destinations);
+        Runtime.getRuntime().addShutdownHook(new Thread(Logger::stopAsync, "lvp-log-exit"));
+    }
+    public static synchronized void stopAsync() {
+        AsyncLog running = async;
+        async = null;
+        if (running != null) running.close();
+    }
+
+    // Guard for callers that would have to build an expensive message
+    public static boolean isEnabled(LogLevel level) { return level.ordinal() >= minLogLevel.ordinal(); }
 
     // Logging
     public static void log(LogLevel level, String message) {
         log(level, message, null);
     }
+    // The message is only built if the level is enabled
+    public static void log(LogLevel level, Supplier<String> message) {
+        if (isEnabled(level)) log(level, message.get(), null);
+    }
     public static void log(LogLevel level, String message, Throwable error) {
-        if(level.ordinal() < minLogLevel.ordinal()) return;
+        if (!isEnabled(level)) return;
+        dispatch(level, message, NO_ARGS, error);
+    }
 
-        String timestamp = LocalDateTime.now().format(timeFormat);
-        String formattedMessage = stringFormatter.apply(new LogEntry(timestamp, level, message));
+    // Structured destinations get the template and its arguments, all others the formatted text
+    private static void dispatch(LogLevel level, String template, Object[] args, Throwable error) {
+        AsyncLog asyncLog = async;
+        if (asyncLog != null) {
+            asyncLog.publish(level, template, args, error);
+            return;
+        }
 
+        Instant now = Instant.now();
+        String formattedMessage = null;
+        for (LogDestination destination : destinations) {
+            if (destination instanceof StructuredDestination structured) {
+                structured.log(epochNanos(now), level, template, args, error);
+                continue;
+            }
+            if (formattedMessage == null) formattedMessage = format(LocalDateTime.ofInstant(now, ZONE), level, fill(template, args), error);
+            destination.log(formattedMessage);
+        }
+        count(level, formattedMessage);
+    }
+
+    static long epochNanos(Instant time) { return time.getEpochSecond() * 1_000_000_000L + time.getNano(); }
+
+    static String format(LocalDateTime time, LogLevel level, String message, Throwable error) {
+        String formattedMessage = stringFormatter.apply(new LogEntry(time.format(timeFormat), level, message));
         if (error != null) {
             formattedMessage += System.lineSeparator();
             formattedMessage += getStackTrace(error);
         }
+        return formattedMessage;
+    }
 
-        for (LogDestination destination : destinations) {
-            destination.log(formattedMessage);
-        }
+    static void count(LogLevel level, String formattedMessage) {
+        messagesLogged.get(level).increment();
+        if (formattedMessage != null) charsLogged.add(formattedMessage.length());
     }
 
     // Helper Methods
     public static void logError(String message, Throwable error) { log(LogLevel.Error, message, error); }
     public static void logError(String message) { log(LogLevel.Error, message); }
+    public static void logError(Supplier<String> message) { log(LogLevel.Error, message); }
+    public static void logError(String template, Object arg) { if (isEnabled(LogLevel.Error)) dispatch(LogLevel.Error, template, new Object[] { arg }, null); }
+    public static void logError(String template, Object arg1, Object arg2) { if (isEnabled(LogLevel.Error)) dispatch(LogLevel.Error, template, new Object[] { arg1, arg2 }, null); }
     public static void logInfo(String message, Throwable error) { log(LogLevel.Info, message, error); }
     public static void logInfo(String message) { log(LogLevel.Info, message); }
+    public static void logInfo(Supplier<String> message) { log(LogLevel.Info, message); }
+    public static void logInfo(String template, Object arg) { if (isEnabled(LogLevel.Info)) dispatch(LogLevel.Info, template, new Object[] { arg }, null); }
+    public static void logInfo(String template, Object arg1, Object arg2) { if (isEnabled(LogLevel.Info)) dispatch(LogLevel.Info, template, new Object[] { arg1, arg2 }, null); }
     public static void logDebug(String message, Throwable error) { log(LogLevel.Debug, message, error); }
     public static void logDebug(String message) { log(LogLevel.Debug, message); }
+    public static void logDebug(Supplier<String> message) { log(LogLevel.Debug, message); }
+    public static void logDebug(String template, Object arg) { if (isEnabled(LogLevel.Debug)) dispatch(LogLevel.Debug, template, new Object[] { arg }, null); }
+    public static void logDebug(String template, Object arg1, Object arg2) { if (isEnabled(LogLevel.Debug)) dispatch(LogLevel.Debug, template, new Object[] { arg1, arg2 }, null); }
+
+    // Each "{}" in the template is replaced by the next argument; only called once the level is enabled.
+    // Public so that decoders of structured logs render messages exactly like the Logger does.
+    public static String fill(String template, Object... args) {
+        if (args.length == 0) return template;
+        StringBuilder message = new StringBuilder(template.length() + 16 * args.length);
+        int from = 0;
+        for (Object arg : args) {
+            int slot = template.indexOf("{}", from);
+            if (slot < 0) break;
+            message.append(template, from, slot).append(arg);
+            from = slot + 2;
+        }
+        return message.append(template, from, template.length()).toString();
+    }
 
 
     // https://www.baeldung.com/java-stacktrace-to-string
@@ -0,0 +1,165 @@
+package lvp.logging;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import lvp.metrics.Counter;
+import lvp.metrics.Metrics;
+
+/**
+ * A log file that is rotated by size or age. Messages go straight into a {@link FileChannel}.
+ * On rotation the logging thread only closes, renames and reopens the file; compressing the
+ * old segment and deleting the oldest segments beyond {@link RollingPolicy#maxTotalBytes()}
+ * happens on a background thread.
+ */
+public class RollingFileDestination implements LogDestination {
+    private static final DateTimeFormatter SEGMENT_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    private static final long ROTATION_RETRY_MILLIS = 60_000;
+    private static final Counter rotations = Metrics.counter("lvp_log_rotations_total", "Rotated log file segments");
+
+    private final Path file;
+    private final RollingPolicy policy;
+    private final Lock lock = new ReentrantLock();
+    private final ExecutorService housekeeper = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("lvp-log-roll").daemon().factory());
+    private FileChannel channel;
+    private long size;
+    private long rotateAt;
+    private long retryAt;
+    private boolean isRotationFailing;
+
+    public static RollingFileDestination of(Path file, RollingPolicy policy) throws IOException { return new RollingFileDestination(file, policy); }
+    private RollingFileDestination(Path file, RollingPolicy policy) throws IOException {
+        this.file = file.toAbsolutePath().normalize();
+        this.policy = policy;
+        try {
+            Files.createDirectories(this.file.getParent());
+            open();
+        } catch (IOException e) {
+            System.err.println("Failed to open file: " + file);
+            throw e;
+        }
+        // Segments an earlier session did not get to compress
+        housekeeper.execute(this::housekeeping);
+    }
+
+    @Override
+    public void log(String formattedMessage) {
+        append(formattedMessage + System.lineSeparator());
+    }
+
+    @Override
+    public void write(String formattedMessages) {
+        append(formattedMessages + System.lineSeparator());
+    }
+
+    private void append(String text) {
+        ByteBuffer bytes = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            if (size > 0 && (size + bytes.remaining() > policy.maxSegmentBytes() || now >= rotateAt) && now >= retryAt) tryRotate(now);
+            if (!channel.isOpen()) open();
+            while (bytes.hasRemaining()) size += channel.write(bytes);
+        } catch (IOException e) {
+            System.err.println("Logging to file failed: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        size = channel.size();
+        rotateAt = System.currentTimeMillis() + policy.maxSegmentAge().toMillis();
+    }
+
+    // A failed rotation keeps writing to the current file and is reported once until a rotation succeeds again
+    private void tryRotate(long now) {
+        try {
+            rotate();
+            isRotationFailing = false;
+        } catch (IOException e) {
+            if (!isRotationFailing) System.err.println("Log rotation failed, writing on to " + file + ": " + e.getMessage());
+            isRotationFailing = true;
+            retryAt = now + ROTATION_RETRY_MILLIS;
+        }
+    }
+
+    // Called under the lock; closing first lets the rename work on Windows too
+    private void rotate() throws IOException {
+        channel.close();
+        try {
+            Files.move(file, segmentPath(), StandardCopyOption.ATOMIC_MOVE);
+            rotations.increment();
+            housekeeper.execute(this::housekeeping);
+        } finally {
+            open();
+        }
+    }
+
+    private Path segmentPath() {
+        String name = file.getFileName() + "." + LocalDateTime.now().format(SEGMENT_TIME);
+        Path segment = file.resolveSibling(name);
+        for (int i = 1; Files.exists(segment) || Files.exists(segment.resolveSibling(name + ".gz")); i++)
+            segment = file.resolveSibling(name + "-" + i);
+        return segment;
+    }
+
+    private void housekeeping() {
+        try {
+            for (Path segment : segments()) {
+                String name = segment.getFileName().toString();
+                if (name.endsWith(".tmp")) Files.deleteIfExists(segment);  // left over by an interrupted compression
+                else if (!name.endsWith(".gz")) compress(segment);
+            }
+            List<Path> segments = segments();
+            long total = Files.exists(file) ? Files.size(file) : 0;
+            for (Path segment : segments) total += Files.size(segment);
+            // Names start with the rotation time, so the oldest come first
+            for (Path segment : segments) {
+                if (total <= policy.maxTotalBytes()) break;
+                total -= Files.size(segment);
+                Files.delete(segment);
+            }
+        } catch (IOException e) {
+            System.err.println("Log rotation failed: " + e.getMessage());
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        String prefix = file.getFileName() + ".";
+        try (Stream<Path> files = Files.list(file.getParent())) {
+            return files.filter(path -> path.getFileName().toString().startsWith(prefix)).sorted().toList();
+        }
+    }
+
+    // Log text compresses well even at the fastest level, and the thread takes less CPU from the logging threads
+    private static void compress(Path segment) throws IOException {
+        Path compressed = segment.resolveSibling(segment.getFileName() + ".gz");
+        Path temp = segment.resolveSibling(compressed.getFileName() + ".tmp");
+        try (InputStream in = Files.newInputStream(segment);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp), 1 << 16) {{ def.setLevel(Deflater.BEST_SPEED); }}) {
+            in.transferTo(out);
+        }
+        Files.move(temp, compressed, StandardCopyOption.ATOMIC_MOVE);
+        Files.delete(segment);
+    }
+}
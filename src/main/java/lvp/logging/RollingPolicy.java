@@ -0,0 +1,20 @@
+package lvp.logging;
+
+import java.time.Duration;
+
+/**
+ * When a {@link RollingFileDestination} starts a new segment and how much it keeps.
+ *
+ * @param maxSegmentBytes size after which the current file is rotated
+ * @param maxSegmentAge time after which the current file is rotated, even if it is small
+ * @param maxTotalBytes oldest compressed segments are deleted beyond this total size
+ */
+public record RollingPolicy(long maxSegmentBytes, Duration maxSegmentAge, long maxTotalBytes) {
+    private static final long MB = 1024 * 1024;
+
+    public static RollingPolicy defaults() { return of(10, 24, 100); }
+
+    public static RollingPolicy of(long segmentMegabytes, long segmentHours, long totalMegabytes) {
+        return new RollingPolicy(Math.max(1, segmentMegabytes) * MB, Duration.ofHours(Math.max(1, segmentHours)), Math.max(1, totalMegabytes) * MB);
+    }
+}
@@ -0,0 +1,16 @@
+package lvp.logging;
+
+import java.time.Instant;
+
+/**
+ * A destination that stores log entries unformatted. The {@link Logger} hands it the message
+ * template and its arguments instead of the formatted text, so formatting is left to whoever
+ * reads the log later.
+ */
+public interface StructuredDestination extends LogDestination {
+    void log(long epochNanos, LogLevel level, String template, Object[] args, Throwable error);
+
+    // Only used if the destination is called directly; the Logger always passes the structured entry
+    @Override
+    default void log(String formattedMessage) { log(Logger.epochNanos(Instant.now()), LogLevel.Info, formattedMessage, Logger.NO_ARGS, null); }
+}
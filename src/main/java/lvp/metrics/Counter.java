@@ -0,0 +1,14 @@
+package lvp.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Monotonic counter; LongAdder keeps increments contention-free on hot paths
+public final class Counter {
+    private final LongAdder value = new LongAdder();
+
+    Counter() {}
+
+    public void increment() { value.increment(); }
+    public void add(long amount) { value.add(amount); }
+    public long sum() { return value.sum(); }
+}
@@ -0,0 +1,46 @@
+package lvp.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+// Fixed-bucket histogram; observations are recorded in nanoseconds and exported in seconds
+public final class Histogram {
+    public static final double[] LATENCY_BUCKETS = { 0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30 };
+
+    private final double[] bounds;
+    private final long[] boundsNanos;
+    private final LongAdder[] buckets;   // last bucket is +Inf
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+
+    Histogram(double... bounds) {
+        this.bounds = bounds.clone();
+        Arrays.sort(this.bounds);
+        this.boundsNanos = Arrays.stream(this.bounds).mapToLong(b -> (long) (b * 1e9)).toArray();
+        this.buckets = new LongAdder[this.bounds.length + 1];
+        for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+    }
+
+    public void observeNanos(long nanos) {
+        int i = Arrays.binarySearch(boundsNanos, nanos);
+        buckets[i >= 0 ? i : -i - 1].increment();
+        count.increment();
+        sumNanos.add(nanos);
+    }
+
+    public void observeSince(long startNanos) { observeNanos(System.nanoTime() - startNanos); }
+
+    public long count() { return count.sum(); }
+
+    void render(StringBuilder out, String name, String labels) {
+        long cumulative = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            cumulative += buckets[i].sum();
+            Metrics.sample(out, name + "_bucket", Metrics.joinLabels(labels, "le=\"" + bounds[i] + "\""), cumulative);
+        }
+        cumulative += buckets[bounds.length].sum();
+        Metrics.sample(out, name + "_bucket", Metrics.joinLabels(labels, "le=\"+Inf\""), cumulative);
+        Metrics.sample(out, name + "_sum", labels, sumNanos.sum() / 1e9);
+        Metrics.sample(out, name + "_count", labels, cumulative);
+    }
+}
@@ -0,0 +1,96 @@
+package lvp.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide registry of counters, gauges and histograms, rendered in the
+ * Prometheus text exposition format. Recording never takes a lock; only
+ * registration and scraping touch the registry maps.
+ */
+public final class Metrics {
+    private enum Type { counter, gauge, histogram }
+
+    private record Family(String name, String help, Type type, Map<String, Object> series) {}
+
+    private static final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    private Metrics() {}
+
+    // Registration; labels are given as alternating name/value pairs
+    public static Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, Type.counter).series().computeIfAbsent(labels(labels), _ -> new Counter());
+    }
+
+    public static Histogram histogram(String name, String help, double[] buckets, String... labels) {
+        return (Histogram) family(name, help, Type.histogram).series().computeIfAbsent(labels(labels), _ -> new Histogram(buckets));
+    }
+
+    public static void gauge(String name, String help, LongSupplier value) {
+        family(name, help, Type.gauge).series().put("", value);
+    }
+
+    // Series whose label sets change at runtime, e.g. one per connected client; keys are rendered labels
+    public static void gauges(String name, String help, Supplier<Map<String, Long>> values) {
+        family(name, help, Type.gauge).series().put("", values);
+    }
+
+    public static void counters(String name, String help, Supplier<Map<String, Long>> values) {
+        family(name, help, Type.counter).series().put("", values);
+    }
+
+    private static Family family(String name, String help, Type type) {
+        return families.computeIfAbsent(name, _ -> new Family(name, help, type, new ConcurrentHashMap<>()));
+    }
+
+    // Rendering
+    public static String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Family family : families.values()) {
+            out.append("# HELP ").append(family.name()).append(' ').append(family.help()).append('\n');
+            out.append("# TYPE ").append(family.name()).append(' ').append(family.type()).append('\n');
+            family.series().forEach((labels, series) -> render(out, family.name(), labels, series));
+        }
+        return out.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void render(StringBuilder out, String name, String labels, Object series) {
+        switch (series) {
+            case Counter c -> sample(out, name, labels, c.sum());
+            case Histogram h -> h.render(out, name, labels);
+            case LongSupplier s -> sample(out, name, labels, s.getAsLong());
+            case Supplier<?> s -> ((Map<String, Long>) s.get()).forEach((l, v) -> sample(out, name, l, v));
+            default -> {}
+        }
+    }
+
+    static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty()) out.append('{').append(labels).append('}');
+        out.append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value)) out.append((long) value);
+        else out.append(value);
+        out.append('\n');
+    }
+
+    public static String label(String name, Object value) {
+        return name + "=\"" + String.valueOf(value).replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+    }
+
+    static String joinLabels(String a, String b) {
+        return a.isEmpty() ? b : a + "," + b;
+    }
+
+    private static String labels(String... pairs) {
+        if (pairs.length % 2 != 0) throw new IllegalArgumentException("Labels must be name/value pairs");
+        List<String> parts = new ArrayList<>();
+        for (int i = 0; i < pairs.length; i += 2) parts.add(label(pairs[i], pairs[i + 1]));
+        return String.join(",", parts);
+    }
+}
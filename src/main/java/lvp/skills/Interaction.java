@@ -41,7 +41,7 @@ public class Interaction {
         String inputField = Text.fillOut("""
                 <label for='input${0}' style='margin-right: 5px;'>${3}</label>
                 <input type='${2}' style='padding: 5px; margin: 5px 5px 0 0;' id='input${0}' placeholder='${1}' />
-                """, id, placeholder, type, label.replaceFirst("//", "").trim());
+                """, id, Text.escapeHtml(placeholder), type, Text.escapeHtml(label.replaceFirst("//", "").trim()));
         String button = button("Send", Text.fillOut("""
             (() => {
                 const input = document.getElementById("input${0}");
@@ -71,8 +71,49 @@ public class Interaction {
                 Base64.getEncoder().encodeToString(label.getBytes(StandardCharsets.UTF_8)),
                 template,
                 checked ? "checked" : "",
-                label.replaceFirst("//", "").trim());
+                Text.escapeHtml(label.replaceFirst("//", "").trim()));
     }
 
-    
+    // Parameters: the value goes to the running script, see Parameters, the source stays as it is
+
+    // `value` is a JavaScript expression, e.g. "this.value"
+    public static String setParameter(String path, String name, String value) {
+        return setParameter(Path.of(path), name, value);
+    }
+    public static String setParameter(Path path, String name, String value) {
+        return Text.fillOut("fetch(\"parameter\", { method: \"post\", body: \"${0}:${1}:\" + btoa(String.fromCharCode(...new TextEncoder().encode(String(${2})))) }).catch(console.error);",
+                Base64.getEncoder().encodeToString(path.normalize().toAbsolutePath().toString().getBytes(StandardCharsets.UTF_8)),
+                Base64.getEncoder().encodeToString(name.getBytes(StandardCharsets.UTF_8)),
+                value);
+    }
+
+    public static String parameterSlider(String path, String name, double min, double max, double value) {
+        return parameterSlider(Path.of(path), name, min, max, value);
+    }
+    public static String parameterSlider(Path path, String name, double min, double max, double value) {
+        return slider(Clerk.generateID(10), min, max, value, setParameter(path, name, "this.value"));
+    }
+
+    public static String parameterInput(String path, String name, String label, String value) {
+        return parameterInput(Path.of(path), name, label, value);
+    }
+    public static String parameterInput(Path path, String name, String label, String value) {
+        String id = Clerk.generateID(10);
+        String inputField = Text.fillOut("""
+                <label for='input${0}' style='margin-right: 5px;'>${2}</label>
+                <input type='text' style='padding: 5px; margin: 5px 5px 0 0;' id='input${0}' value='${1}' />
+                """, id, Text.escapeHtml(value), Text.escapeHtml(label));
+        return inputField + button("Send", setParameter(path, name, Text.fillOut("document.getElementById(\"input${0}\").value", id)));
+    }
+
+    public static String parameterCheckbox(String path, String name, String label, boolean checked) {
+        return parameterCheckbox(Path.of(path), name, label, checked);
+    }
+    public static String parameterCheckbox(Path path, String name, String label, boolean checked) {
+        String id = Clerk.generateID(10);
+        return Text.fillOut("""
+                <label for='input${0}' style='margin-right: 5px;'>${1}</label>
+                <input type='checkbox' id='input${0}' style='margin: 5px 5px 0 0;' ${2} onclick='${3}' />
+                """, id, Text.escapeHtml(label), checked ? "checked" : "", setParameter(path, name, "this.checked"));
+    }
 }
@@ -0,0 +1,66 @@
+package lvp.skills;
+
+import lvp.Clerk;
+import lvp.ParameterInbox;
+import lvp.SSEType;
+
+/**
+ * Parameters of the script, set in the browser by the parameter widgets of {@link Interaction}.
+ * Unlike '/interact', a change does not rewrite the source and start a new run: the server
+ * pushes it to the running script, and a section drawn with {@link #live} is drawn again.
+ * <pre>
+ * Parameters.live(() -> new FunctionPlotter(Parameters.get("interval", "[-10;10]")).writeTurtle());
+ * </pre>
+ */
+public class Parameters {
+    public static String get(String name, String fallback) {
+        String value = ParameterInbox.current().get(name);
+        return value != null ? value : fallback;
+    }
+
+    public static double get(String name, double fallback) {
+        try {
+            return Double.parseDouble(get(name, Double.toString(fallback)).trim());
+        } catch (NumberFormatException _) {
+            return fallback;
+        }
+    }
+
+    public static int get(String name, int fallback) {
+        return (int) Math.round(get(name, (double) fallback));
+    }
+
+    public static boolean get(String name, boolean fallback) {
+        return Boolean.parseBoolean(get(name, Boolean.toString(fallback)).trim());
+    }
+
+    // Draws the section and draws it again in place after every change of a parameter, until the
+    // run is superseded. Without the server, e.g. with 'java script.java', it is drawn once.
+    public static void live(Runnable render) {
+        ParameterInbox inbox = ParameterInbox.current();
+        String id = "live" + Clerk.generateID(10);
+        try {
+            long seen = inbox.version();
+            while (true) {
+                Clerk.batch(() -> draw(id, render));
+                if (!inbox.isLive()) return;
+                seen = inbox.awaitChange(seen);
+                if (seen < 0) return;
+            }
+        } catch (InterruptedException _) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // A value that breaks the drawing is reported, the section waits for the next one
+    private static void draw(String id, Runnable render) {
+        Clerk.out(SSEType.LIVE, id);
+        try {
+            render.run();
+        } catch (RuntimeException e) {
+            Clerk.out(SSEType.LOG, e.toString());
+        } finally {
+            Clerk.out(SSEType.LIVE, "");
+        }
+    }
+}
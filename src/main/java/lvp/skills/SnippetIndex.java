@@ -0,0 +1,77 @@
+package lvp.skills;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lines of the files read by {@link Text#cutOut}, with the lines each trimmed text is on. A file
+ * is read and indexed in one pass and kept until its modification time or size change, so
+ * the code blocks of a document cost a lookup per label and a copy of their lines.
+ */
+final class SnippetIndex {
+    private record Source(FileTime modified, long size, String[] lines, Map<String, int[]> lineNumbers) {}
+
+    private static final int[] NONE = {};
+    private static final Map<Path, Source> sources = new ConcurrentHashMap<>();
+
+    private SnippetIndex() {}
+
+    // Same result as toggling between skipping and taking lines at every line that is one of the labels
+    static String cutOut(Path path, boolean includeStartLabel, boolean includeEndLabel, String... labels) throws IOException {
+        Source source = load(path);
+        String[] lines = source.lines();
+        StringJoiner snippet = new StringJoiner("\n");
+        boolean skipLines = true;
+        int start = 0;
+        for (int line : labelLines(source, labels)) {
+            if (skipLines) {
+                if (includeStartLabel) snippet.add(lines[line]);
+                start = line + 1;
+            } else {
+                for (int i = start; i < line; i++) snippet.add(lines[i]);
+                if (includeEndLabel) snippet.add(lines[line]);
+            }
+            skipLines = !skipLines;
+        }
+        if (!skipLines) { // no closing label, the snippet runs to the end
+            for (int i = start; i < lines.length; i++) snippet.add(lines[i]);
+        }
+        return snippet.toString();
+    }
+
+    // The lines of all labels in ascending order; a line matching two labels toggles once
+    private static int[] labelLines(Source source, String... labels) {
+        if (labels.length == 1) return source.lineNumbers().getOrDefault(labels[0], NONE);
+        return Arrays.stream(labels).distinct()
+            .flatMapToInt(label -> Arrays.stream(source.lineNumbers().getOrDefault(label, NONE)))
+            .sorted()
+            .toArray();
+    }
+
+    private static Source load(Path path) throws IOException {
+        Path file = path.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        Source cached = sources.get(file);
+        if (cached != null && cached.modified().equals(attributes.lastModifiedTime()) && cached.size() == attributes.size()) return cached;
+
+        List<String> lines = Files.readAllLines(file);
+        Map<String, List<Integer>> found = new HashMap<>();
+        for (int i = 0; i < lines.size(); i++) found.computeIfAbsent(lines.get(i).trim(), _ -> new ArrayList<>()).add(i);
+        Map<String, int[]> lineNumbers = new HashMap<>(found.size() * 2);
+        found.forEach((text, numbers) -> lineNumbers.put(text, numbers.stream().mapToInt(Integer::intValue).toArray()));
+
+        Source source = new Source(attributes.lastModifiedTime(), attributes.size(), lines.toArray(String[]::new), lineNumbers);
+        sources.put(file, source);
+        return source;
+    }
+}
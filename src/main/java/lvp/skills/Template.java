@@ -0,0 +1,120 @@
+package lvp.skills;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A text with `${<key>}` slots, parsed once into literal and slot segments. Rendering only
+ * copies the segments and the values into a builder of the right size. {@link Text#fillOut}
+ * keeps the templates it has seen; a template used in a loop can also be kept in a constant:
+ * <pre>
+ * static final Template ROW = Template.of("<tr><td>${0}</td><td>${1}</td></tr>");
+ * ROW.render(name, value);
+ * </pre>
+ * Keys are arbitrary, `${0}`, `${1}`, ... are the positions of the arguments of
+ * {@link #render(Object...)}. A key without a value stays in the text as it is.
+ */
+public final class Template {
+    private final String template;
+    private final String[] literals; // one more than there are slots
+    private final String[] keys;
+    private final int[] positions; // argument index of each key, -1 if it is not a position
+    private final int literalLength;
+
+    private Template(String template, String[] literals, String[] keys) {
+        this.template = template;
+        this.literals = literals;
+        this.keys = keys;
+        positions = new int[keys.length];
+        int length = 0;
+        for (String literal : literals) length += literal.length();
+        literalLength = length;
+        for (int i = 0; i < keys.length; i++) positions[i] = position(keys[i]);
+    }
+
+    public static Template of(String template) {
+        List<String> literals = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        int literalStart = 0;
+        int from = 0;
+        int open;
+        while ((open = template.indexOf("${", from)) >= 0) {
+            int close = closingBrace(template, open + 2);
+            if (close < 0) { // no slot starts here
+                from = open + 1;
+                continue;
+            }
+            literals.add(template.substring(literalStart, open));
+            keys.add(template.substring(open + 2, close));
+            literalStart = from = close + 1;
+        }
+        literals.add(template.substring(literalStart));
+        return new Template(template, literals.toArray(String[]::new), keys.toArray(String[]::new));
+    }
+
+    // The first '}' of the line; a key does not span lines
+    private static int closingBrace(String template, int from) {
+        for (int i = from; i < template.length(); i++) {
+            switch (template.charAt(i)) {
+                case '}': return i;
+                case '\n', '\r', '\u0085', '\u2028', '\u2029': return -1;
+                default:
+            }
+        }
+        return -1;
+    }
+
+    // Only the canonical form counts, as in the keys "0", "1", ... of the positional arguments
+    private static int position(String key) {
+        if (key.isEmpty() || key.length() > 9 || (key.length() > 1 && key.charAt(0) == '0')) return -1;
+        for (int i = 0; i < key.length(); i++) {
+            if (key.charAt(i) < '0' || key.charAt(i) > '9') return -1;
+        }
+        return Integer.parseInt(key);
+    }
+
+    public String render(Object... args) {
+        String[] values = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            int position = positions[i];
+            values[i] = position >= 0 && position < args.length ? String.valueOf(args[position]) : missing(i);
+        }
+        return join(values);
+    }
+
+    public String render(Map<String, ?> args) {
+        String[] values = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = args.containsKey(keys[i]) ? String.valueOf(args.get(keys[i])) : missing(i);
+        }
+        return join(values);
+    }
+
+    public StringBuilder renderTo(StringBuilder out, Object... args) {
+        out.append(literals[0]);
+        for (int i = 0; i < keys.length; i++) {
+            int position = positions[i];
+            out.append(position >= 0 && position < args.length ? String.valueOf(args[position]) : missing(i));
+            out.append(literals[i + 1]);
+        }
+        return out;
+    }
+
+    private String missing(int slot) {
+        System.err.println("WARNING: key \"" + keys[slot] + "\" not found in template:\n" + template);
+        return "${" + keys[slot] + "}";
+    }
+
+    private String join(String[] values) {
+        int length = literalLength;
+        for (String value : values) length += value.length();
+        StringBuilder out = new StringBuilder(length);
+        out.append(literals[0]);
+        for (int i = 0; i < values.length; i++) out.append(values[i]).append(literals[i + 1]);
+        return out.toString();
+    }
+
+    @Override
+    public String toString() { return template; }
+}
@@ -1,58 +1,33 @@
 package lvp.skills;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Base64;
-import java.util.List;
-import java.util.stream.Collectors;
 import java.util.Map;
-import java.util.HashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.IntStream;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Text { // Class with static methods for file operations
     private Text(){}
     
+    // Errors end the script, not the JVM: a script run inside the server shares it
     public static void write(String fileName, String text) {
         try {
             Files.writeString(Path.of(fileName), text);
         } catch (IOException e) {
-            System.err.printf("Error writing %s\n", e.getMessage());
-            System.exit(1);
+            throw new UncheckedIOException("Error writing " + fileName, e);
         }
     }
 
     // core method
     public static String cutOut(Path path, boolean includeStartLabel, boolean includeEndLabel, String... labels) {
-        List<String> snippet = new ArrayList<>();
-        boolean skipLines = true;
-        boolean isInLabels;
         try {
-            List<String> lines = Files.readAllLines(path);
-            for (String line : lines) {
-                isInLabels = Arrays.stream(labels).anyMatch(label -> line.trim().equals(label));
-                if (isInLabels) {
-                    if (skipLines && includeStartLabel)
-                        snippet.add(line);
-                    if (!skipLines && includeEndLabel)
-                        snippet.add(line);
-                    skipLines = !skipLines;
-                    continue;
-                }
-                if (skipLines)
-                    continue;
-                snippet.add(line);
-            }
+            return SnippetIndex.cutOut(path, includeStartLabel, includeEndLabel, labels);
         } catch (IOException e) {
-            System.err.printf("Error reading %s\n", e.getMessage());
-            System.exit(1);
+            throw new UncheckedIOException("Error reading " + path, e);
         }
-        return snippet.stream().collect(Collectors.joining("\n"));
     }
     // end
 
@@ -69,10 +44,68 @@ public class Text { // Class with static methods for file operations
         return cutOut(fileName, true, true, "");
     }
 
+    private static final char[] HTML_SPECIAL = { '&', '<', '>', '"', '\'' };
+    private static final String[] HTML_ENTITY = { "&amp;", "&lt;", "&gt;", "&quot;", "&#39;" };
+
+    // Escapes text for element content and for attribute values in single or double quotes.
+    // Text without any of the characters is returned as it is.
     public static String escapeHtml(String text) {
-        return text.replaceAll("&", "&amp;")
-            .replaceAll("<", "&lt;")
-            .replaceAll(">", "&gt;");
+        HtmlSpecials specials = new HtmlSpecials(text);
+        int first = specials.next();
+        if (first < 0) return text;
+        return escapeHtml(text, specials, first, new StringBuilder(text.length() + text.length() / 8)).toString();
+    }
+
+    public static StringBuilder escapeHtml(CharSequence text, StringBuilder out) {
+        String string = text.toString();
+        HtmlSpecials specials = new HtmlSpecials(string);
+        return escapeHtml(string, specials, specials.next(), out);
+    }
+
+    // Streams the escaped text, e.g. into a Writer, in runs between the escaped characters
+    public static Appendable escapeHtml(CharSequence text, Appendable out) throws IOException {
+        String string = text.toString();
+        HtmlSpecials specials = new HtmlSpecials(string);
+        int start = 0;
+        for (int i = specials.next(); i >= 0; i = specials.next()) {
+            out.append(string, start, i).append(specials.entity());
+            start = i + 1;
+        }
+        return out.append(string, start, string.length());
+    }
+
+    private static StringBuilder escapeHtml(String text, HtmlSpecials specials, int first, StringBuilder out) {
+        int start = 0;
+        for (int i = first; i >= 0; i = specials.next()) {
+            out.append(text, start, i).append(specials.entity());
+            start = i + 1;
+        }
+        return out.append(text, start, text.length());
+    }
+
+    // Walks the characters to escape in order. String.indexOf scans many characters per step,
+    // a loop over the characters of the text is several times slower on source code.
+    private static final class HtmlSpecials {
+        private final String text;
+        private final int[] next = new int[HTML_SPECIAL.length];
+        private int current = -1;
+
+        HtmlSpecials(String text) {
+            this.text = text;
+            for (int k = 0; k < next.length; k++) next[k] = text.indexOf(HTML_SPECIAL[k]);
+        }
+
+        // Position of the next character to escape, -1 at the end
+        int next() {
+            if (current >= 0) next[current] = text.indexOf(HTML_SPECIAL[current], next[current] + 1);
+            current = -1;
+            for (int k = 0; k < next.length; k++) {
+                if (next[k] >= 0 && (current < 0 || next[k] < next[current])) current = k;
+            }
+            return current < 0 ? -1 : next[current];
+        }
+
+        String entity() { return HTML_ENTITY[current]; }
     }
 
     public static String codeBlock(String fileName, String label) {
@@ -84,22 +117,22 @@ public class Text { // Class with static methods for file operations
 
     // Method `fillOut` emulates String interpolation, since String Templates
     // have been removed in Java 23 (they were a preview feature in Java 21 and 22).
+    // Each template is parsed once, see `Template`.
 
-    public static String fillOut(Map<String, Object> replacements, String template) {
-        Pattern pattern = Pattern.compile("\\$\\{(.*?)\\}"); // `${<key>}`
-        Matcher matcher = pattern.matcher(template);
-        StringBuffer result = new StringBuffer();
-
-        while (matcher.find()) {
-            String key = matcher.group(1);
-            if (!replacements.containsKey(key))
-                System.err.println("WARNING: key \"" + key + "\" not found in template:\n" + template);
-            Object replacement = replacements.getOrDefault(key, "${" + key + "}"); 
-            matcher.appendReplacement(result, Matcher.quoteReplacement(replacement.toString()));
-        }
-        matcher.appendTail(result);
+    // Beyond this, templates are most likely built at run time and are not kept
+    private static final int MAX_TEMPLATES = 1 << 10;
+    private static final Map<String, Template> templates = new ConcurrentHashMap<>();
 
-        return result.toString();
+    static Template template(String template) {
+        Template parsed = templates.get(template);
+        if (parsed != null) return parsed;
+        parsed = Template.of(template);
+        if (templates.size() < MAX_TEMPLATES) templates.putIfAbsent(template, parsed);
+        return parsed;
+    }
+
+    public static String fillOut(Map<String, Object> replacements, String template) {
+        return template(template).render(replacements);
     }
 
     public static String fillOut(String template, Map<String, Object> replacements) {
@@ -107,9 +140,6 @@ public class Text { // Class with static methods for file operations
     }
 
     public static String fillOut(String template, Object... replacements) {
-        Map<String, Object> m = new HashMap<>();
-        IntStream.range(0, replacements.length)
-            .forEach(i -> m.put(Integer.toString(i), replacements[i]));
-        return fillOut(m, template);
+        return template(template).render(replacements);
     }
 }
@@ -1,18 +1,20 @@
 package lvp.views;
 import lvp.Clerk;
+import lvp.skills.Text;
 
 public record MarkdownIt() implements Clerk {
     public String write(String markdownText) {
         String ID = Clerk.generateID(10);
-        // Using `preformatted` is a hack to get a Java String into the Browser without interpretation
-        Clerk.write("<script id='" + ID + "' type='preformatted'>" + markdownText + "</script>");
-        Clerk.call("var scriptElement = document.getElementById('" + ID  + "');"
+        // The escaped text arrives unchanged as textContent of a hidden element, even if it contains "</script>"
+        StringBuilder source = new StringBuilder(markdownText.length() + 48).append("<div id='").append(ID).append("' hidden>");
+        Clerk.write(Text.escapeHtml(markdownText, source).append("</div>").toString());
+        Clerk.call("var sourceElement = document.getElementById('" + ID  + "');"
         +
         """
         var divElement = document.createElement('div');
-        divElement.id = scriptElement.id;
-        divElement.innerHTML = window.md.render(scriptElement.textContent);
-        scriptElement.parentNode.replaceChild(divElement, scriptElement);
+        divElement.id = sourceElement.id;
+        divElement.innerHTML = window.md.render(sourceElement.textContent);
+        sourceElement.parentNode.replaceChild(divElement, sourceElement);
         """
         );
         return ID;
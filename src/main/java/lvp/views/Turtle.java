@@ -11,6 +11,7 @@ import java.util.Locale;
 
 import lvp.Clerk;
 import lvp.skills.Interaction;
+import lvp.skills.Template;
 import lvp.skills.Text;
 
 /**
@@ -21,6 +22,7 @@ import lvp.skills.Text;
  * Die einzelnen graphischen Elemente werden durchnummeriert in der Reihenfolge ihrer Erzeugung.
  */
 public class Turtle implements Clerk{
+    private static final Template CONTAINER = Template.of("<div id='turtle${0}'>${1}</div>");
     public final String ID = Clerk.getHashID(this);
     private final double xFrom, yFrom, viewWidth, viewHeight;
     private final List<Element> elements = new ArrayList<>();
@@ -150,7 +152,7 @@ public class Turtle implements Clerk{
     }
 
     public Turtle write() {
-        Clerk.write(Text.fillOut("<div id='turtle${0}'>${1}</div>", ID, toString()));
+        Clerk.write(CONTAINER.render(ID, toString()));
         return this;
     }
 
@@ -240,7 +242,7 @@ public class Turtle implements Clerk{
                     """,
                     text.id(), text.x(), ySvg, text.dx(), text.dy(),
                     text.color().r(), text.color().g(), text.color().b(), text.color().a(),
-                    text.font(), text.text());
+                    Text.escapeHtml(text.font()), Text.escapeHtml(text.text()));
             }
         };
     }
@@ -4,6 +4,7 @@ let debug = false;
 let scrollPosition = 0;
 
 const clerk = {}; // Scope for declarations
+let writeTarget = null; // Container of a live section while it is redrawn
 
 
 
@@ -26,7 +27,7 @@ function errorLog(message) {
 function setUp() {
 
   if (window.EventSource) {
-    const source = new EventSource(`/events`);
+    const source = new EventSource(`/events${location.search}`);
 
     source.onmessage = function (event) {
       const splitPos = event.data.indexOf(":");
@@ -50,11 +51,30 @@ function setUp() {
         case "WRITE": {
           const newElement = document.createElement("div");
           newElement.innerHTML = data;
-          document.getElementById("events").appendChild(newElement);
+          (writeTarget ?? document.getElementById("events")).appendChild(newElement);
+          break;
+        }
+        case "LIVE": {
+          // "LIVE:id" starts redrawing the section with that id, "LIVE:" ends it
+          if (data === "") {
+            writeTarget = null;
+            break;
+          }
+          let section = document.getElementById(data);
+          if (section == null) {
+            section = document.createElement("div");
+            section.id = data;
+            document.getElementById("events").appendChild(section);
+          }
+          while (section.firstChild) {
+            section.removeChild(section.firstChild);
+          }
+          writeTarget = section;
           break;
         }
         case "CLEAR": {
           scrollPosition = window.scrollY;
+          writeTarget = null;
           const element = document.getElementById("events");
           while (element.firstChild) {
             element.removeChild(element.firstChild);
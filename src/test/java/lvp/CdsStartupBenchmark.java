@@ -0,0 +1,62 @@
+package lvp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.spi.ToolProvider;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Wall time of the JVMs lvp starts, without and with the AppCDS archive of --cds
+@Tag("benchmark")
+class CdsStartupBenchmark {
+    private static final int RUNS = 5;
+
+    @Test
+    void startupWithAndWithoutArchive(@TempDir Path dir) throws Exception {
+        // Dynamic archives need the classes in a jar
+        Path jar = dir.resolve("lvp.jar");
+        int exitCode = ToolProvider.findFirst("jar").orElseThrow()
+            .run(System.out, System.err, "--create", "--file", jar.toString(), "-C", FileWatcher.jarLocation().toString(), ".");
+        assertEquals(0, exitCode);
+        List<String> cds = CdsArchive.prepare(CdsArchive.defaultPath(jar), jar);
+        assertFalse(cds.isEmpty(), "no archive created");
+
+        Path hello = dir.resolve("hello.java");
+        Files.writeString(hello, """
+            import lvp.Clerk;
+
+            void main() {
+                Clerk.write("hello");
+            }
+            """);
+        List<List<String>> programs = List.of(
+            List.of(Worker.class.getName(), "--warmup"),
+            List.of(hello.toString()),
+            List.of(Path.of("demo.java").toAbsolutePath().toString()));
+        for (List<String> program : programs) {
+            System.out.printf("%-16s no CDS %s ms, CDS %s ms%n", program.get(0).replaceFirst(".*/", ""), wallTimes(jar, List.of(), program), wallTimes(jar, cds, program));
+        }
+    }
+
+    private static List<Long> wallTimes(Path jar, List<String> options, List<String> program) throws Exception {
+        List<String> command = new ArrayList<>(List.of("java", "--enable-preview"));
+        command.addAll(options);
+        command.addAll(List.of("--class-path", jar.toString()));
+        command.addAll(program);
+        List<Long> millis = new ArrayList<>();
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+            assertEquals(0, process.waitFor(), String.join(" ", command));
+            millis.add((System.nanoTime() - start) / 1_000_000);
+        }
+        return millis;
+    }
+}
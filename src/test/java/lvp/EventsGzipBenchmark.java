@@ -0,0 +1,58 @@
+package lvp;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+// Bytes on the wire of '/events' with and without --gzip, for the Clerk output of the example scripts
+@Tag("benchmark")
+class EventsGzipBenchmark {
+    @Test
+    void bytesOnWire() throws Exception {
+        for (String script : List.of("demo.java", "logo.java")) {
+            List<String> lines = clerkOutput(Path.of(script));
+            long plain = bytesOnWire(lines, false);
+            long gzip = bytesOnWire(lines, true);
+            System.out.printf("%s (%d events): plain %,d B, gzip %,d B (%.1f%%)%n", script, lines.size(), plain, gzip, 100.0 * gzip / plain);
+            assertTrue(gzip < plain);
+        }
+    }
+
+    // The events of one run of the script as "TYPE:base64" lines
+    private static List<String> clerkOutput(Path script) throws Exception {
+        List<String> lines = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        ClerkSink sink = (event, data) -> lines.add(event + ":" + Base64.getEncoder().encodeToString(data.getBytes(StandardCharsets.UTF_8)));
+        boolean isDone = new InProcessRunner().run(script, sink, new ParameterInbox(Map.of(), false), errors::add, _ -> {});
+        assertTrue(isDone, String.join("\n", errors));
+        return lines;
+    }
+
+    // Everything a client offering gzip receives, headers included, until the server stops
+    private static long bytesOnWire(List<String> lines, boolean isCompressing) throws Exception {
+        Server server = new Server(0, false, isCompressing, Server.defaultExecutor());
+        try (Socket socket = new Socket("localhost", server.port)) {
+            socket.getOutputStream().write("GET /events HTTP/1.1\r\nHost: localhost\r\nAccept-Encoding: gzip\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            while (server.clients().count() == 0) Thread.sleep(10);
+            lines.forEach(server::read);
+            server.stop();
+            socket.setSoTimeout(10_000);
+            InputStream in = socket.getInputStream();
+            long count = 0;
+            for (int n; (n = in.read(new byte[1 << 16])) >= 0; ) count += n;
+            return count;
+        } finally {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package lvp;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.sun.management.ThreadMXBean;
+
+// Bytes allocated by the publishing thread per event sent to two SSE clients, at the default log level
+@Tag("benchmark")
+class FanOutAllocationBenchmark {
+    private static final int EVENTS = 1000;
+
+    @Test
+    void allocationPerEvent() throws Exception {
+        Server server = new Server(0, false);
+        List<Socket> sockets = new ArrayList<>();
+        try {
+            for (int i = 0; i < 2; i++) {
+                Socket socket = new Socket("localhost", server.port);
+                sockets.add(socket);
+                socket.getOutputStream().write("GET /events HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                InputStream in = socket.getInputStream();
+                Thread.ofPlatform().daemon().start(() -> {
+                    try {
+                        in.transferTo(OutputStream.nullOutputStream());
+                    } catch (Exception _) {
+                        // closed at the end
+                    }
+                });
+            }
+            while (server.clients().count() < 2) Thread.sleep(10);
+
+            Server.Channel channel = server.channel("plot.java");
+            byte[] payload = Base64.getEncoder().encode(("<svg>" + "x".repeat(64 * 1024) + "</svg>").getBytes(StandardCharsets.UTF_8));
+            ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+            for (int round = 1; round <= 3; round++) {
+                channel.reset(round);
+                long before = threads.getCurrentThreadAllocatedBytes();
+                for (int i = 0; i < EVENTS; i++) channel.publish(SSEType.WRITE, payload, round);
+                long perEvent = (threads.getCurrentThreadAllocatedBytes() - before) / EVENTS;
+                System.out.printf("round %d: %,d bytes allocated per event of %,d bytes%n", round, perEvent, payload.length);
+                // The frame itself plus the replay history, no decoded copy of the payload
+                if (round == 3) assertTrue(perEvent < payload.length * 3 / 2, perEvent + " bytes per event");
+            }
+        } finally {
+            server.stop();
+            for (Socket socket : sockets) socket.close();
+        }
+    }
+}
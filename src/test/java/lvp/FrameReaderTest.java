@@ -0,0 +1,36 @@
+package lvp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+
+class FrameReaderTest {
+    // A header asking for more than MAX_FRAME closes the connection instead of allocating the payload
+    @Test
+    void closesOnOversizedFrame() throws Exception {
+        List<String> received = new CopyOnWriteArrayList<>();
+        FrameReader reader = FrameReader.open("test", (type, payload) -> received.add(type + ":" + new String(payload, StandardCharsets.UTF_8)));
+        try (SocketChannel client = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            client.connect(UnixDomainSocketAddress.of(reader.socketPath()));
+            byte[] text = "ok".getBytes(StandardCharsets.UTF_8);
+            ByteBuffer frames = ByteBuffer.allocate(2 * FramedSink.HEADER_SIZE + text.length)
+                .put(FramedSink.MAGIC).put((byte) SSEType.WRITE.ordinal()).putInt(text.length).put(text)
+                .put(FramedSink.MAGIC).put((byte) SSEType.WRITE.ordinal()).putInt(Integer.MAX_VALUE)
+                .flip();
+            while (frames.hasRemaining()) client.write(frames);
+            ByteBuffer end = ByteBuffer.allocate(1);
+            assertEquals(-1, client.read(end)); // closed by the reader
+        } finally {
+            reader.close();
+        }
+        assertEquals(List.of("WRITE:ok"), received);
+    }
+}
@@ -0,0 +1,93 @@
+package lvp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+// Throughput of framing 1 GiB of 1 KB "WRITE:..." lines delivered in pipe-sized reads
+@Tag("benchmark")
+class LineIngestionBenchmark {
+    private static final long TOTAL = 1L << 30;
+    private static final byte[] LINE = ("WRITE:" + "QUJD".repeat(250) + "\n").getBytes();
+
+    private long framed;
+
+    @Test
+    void inlineVersusStaged() throws Exception {
+        for (int round = 0; round < 3; round++) {
+            framed = 0;
+            long start = System.nanoTime();
+            inline(source(), this::frame);
+            double inline = (System.nanoTime() - start) / 1e9;
+            assertEquals(TOTAL / LINE.length, framed);
+
+            framed = 0;
+            start = System.nanoTime();
+            LineIngestion.pump(source(), "bench", this::frame);
+            double staged = (System.nanoTime() - start) / 1e9;
+            assertEquals(TOTAL / LINE.length, framed);
+            System.out.printf("inline %.2f s (%.0f MB/s), staged %.2f s (%.0f MB/s)%n", inline, 1024 / inline, staged, 1024 / staged);
+        }
+    }
+
+    // Stands in for building the SSE frame of a line
+    private void frame(byte[] line, int length) {
+        byte[] frame = new byte[length + 8];
+        System.arraycopy(line, 0, frame, 6, length);
+        framed++;
+    }
+
+    // The framing before LineIngestion: lines are handled on the reading thread
+    private static void inline(InputStream in, LineIngestion.LineHandler handler) throws IOException {
+        byte[] buffer = new byte[1 << 16];
+        byte[] line = new byte[1 << 13];
+        int length = 0;
+        for (int n; (n = in.read(buffer)) != -1; ) {
+            int from = 0;
+            for (int i = 0; i < n; i++) {
+                if (buffer[i] != '\n') continue;
+                if (length + i - from > line.length) line = Arrays.copyOf(line, Math.max(line.length * 2, length + i - from));
+                System.arraycopy(buffer, from, line, length, i - from);
+                length += i - from;
+                handler.accept(line, length);
+                length = 0;
+                from = i + 1;
+            }
+            if (length + n - from > line.length) line = Arrays.copyOf(line, Math.max(line.length * 2, length + n - from));
+            System.arraycopy(buffer, from, line, length, n - from);
+            length += n - from;
+        }
+    }
+
+    // TOTAL bytes of whole lines in reads of at most 64 KB, as a pipe delivers them
+    private static InputStream source() {
+        return new InputStream() {
+            long left = TOTAL / LINE.length * LINE.length;
+            int at = 0;
+
+            @Override
+            public int read() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (left <= 0) return -1;
+                len = (int) Math.min(Math.min(len, left), 1 << 16);
+                for (int done = 0; done < len; ) {
+                    int n = Math.min(len - done, LINE.length - at);
+                    System.arraycopy(LINE, at, b, off + done, n);
+                    at = (at + n) % LINE.length;
+                    done += n;
+                }
+                left -= len;
+                return len;
+            }
+        };
+    }
+}
@@ -0,0 +1,68 @@
+package lvp;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Time from saving demo.java to the first WRITE event at the browser, for a process per run and in process
+@Tag("benchmark")
+class SaveToFirstEventBenchmark {
+    private static final int SAVES = 3;
+
+    @Test
+    void saveToFirstEvent(@TempDir Path dir) throws Exception {
+        for (RunMode mode : List.of(RunMode.PROCESS, RunMode.IN_PROCESS)) {
+            Path script = dir.resolve(mode.name().toLowerCase()).resolve("demo.java");
+            Files.createDirectories(script.getParent());
+            Files.copy(Path.of("demo.java"), script);
+            System.out.println(mode + ": " + measure(script, mode) + " ms (initial run, then " + SAVES + " saves)");
+        }
+    }
+
+    private static List<Long> measure(Path script, RunMode mode) throws Exception {
+        Server server = new Server(0, false);
+        FileWatcher watcher = new FileWatcher(script.getParent(), script.getFileName().toString(), server, new RunOptions(mode, List.of(), 1, 1, false, false, false));
+        try {
+            BlockingQueue<Long> writes = new LinkedBlockingQueue<>();
+            HttpClient.newHttpClient().sendAsync(HttpRequest.newBuilder(URI.create("http://localhost:" + server.port + "/events")).build(), HttpResponse.BodyHandlers.ofLines())
+                .thenAccept(response -> response.body().forEach(line -> {
+                    if (line.startsWith("data: WRITE:")) writes.add(System.nanoTime());
+                }));
+            while (server.clients().count() == 0) Thread.sleep(10);
+
+            List<Long> millis = new ArrayList<>();
+            long start = System.nanoTime();
+            Thread.ofPlatform().daemon().start(() -> watcher.watchLoop(server));
+            for (int save = 0; save <= SAVES; save++) {
+                if (save > 0) {
+                    start = System.nanoTime();
+                    Files.writeString(script, "// save " + save + "\n", StandardOpenOption.APPEND);
+                }
+                Long first = writes.poll(60, TimeUnit.SECONDS);
+                assertNotNull(first, "no output of " + script);
+                millis.add((first - start) / 1_000_000);
+                // The rest of this run's output
+                while (writes.poll(2, TimeUnit.SECONDS) != null) {}
+            }
+            return millis;
+        } finally {
+            watcher.stop();
+            server.stop();
+        }
+    }
+}
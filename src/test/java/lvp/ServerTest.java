@@ -0,0 +1,96 @@
+package lvp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ServerTest {
+    // Before any file runs, e.g. without a FileWatcher, '/events' gets the default channel
+    @Test
+    void stopClosesClientsOfTheDefaultChannel() throws Exception {
+        Server server = new Server(0, false);
+        try (Socket socket = new Socket("localhost", server.port)) {
+            socket.getOutputStream().write("GET /events HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            awaitClients(server, 1);
+            server.stop();
+
+            socket.setSoTimeout(5_000);
+            InputStream in = socket.getInputStream();
+            while (in.read() >= 0) {} // the response ends instead of timing out
+        } finally {
+            server.stop();
+        }
+    }
+
+    // Broadcasts reach every SSE client while '/interact' is under load, and the posts are answered
+    @Test
+    void broadcastsToManySseClientsWhileInteracting(@TempDir Path dir) throws Exception {
+        int clientCount = 300, eventCount = 50, postCount = 200;
+        Path script = dir.resolve("plot.java");
+        Files.writeString(script, "int amp = 0; // amp\n");
+        Server server = new Server(0, false);
+        try {
+            HttpClient http = HttpClient.newHttpClient();
+            List<AtomicInteger> received = new ArrayList<>();
+            for (int i = 0; i < clientCount; i++) {
+                AtomicInteger count = new AtomicInteger();
+                received.add(count);
+                http.sendAsync(HttpRequest.newBuilder(URI.create("http://localhost:" + server.port + "/events")).build(), HttpResponse.BodyHandlers.ofLines())
+                    .thenAccept(response -> response.body().forEach(line -> {
+                        if (line.startsWith("data: WRITE:")) count.incrementAndGet();
+                    }));
+            }
+            awaitClients(server, clientCount);
+
+            Thread broadcaster = Thread.ofVirtual().start(() -> {
+                for (int i = 0; i < eventCount; i++) server.sendServerEvent(SSEType.WRITE, "event " + i);
+            });
+            List<CompletableFuture<HttpResponse<Void>>> posts = new ArrayList<>();
+            for (int i = 0; i < postCount; i++) {
+                String body = base64(script.toString()) + ":" + base64("// amp") + ":single:" + base64("int amp = " + i + ";");
+                posts.add(http.sendAsync(HttpRequest.newBuilder(URI.create("http://localhost:" + server.port + "/interact"))
+                    .timeout(Duration.ofSeconds(10))
+                    .POST(HttpRequest.BodyPublishers.ofString(body)).build(), HttpResponse.BodyHandlers.discarding()));
+            }
+            for (CompletableFuture<HttpResponse<Void>> post : posts) assertEquals(200, post.join().statusCode());
+            broadcaster.join();
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (received.stream().anyMatch(count -> count.get() < eventCount) && System.currentTimeMillis() < deadline) Thread.sleep(10);
+            for (AtomicInteger count : received) assertEquals(eventCount, count.get());
+            assertTrue(Files.readString(script).matches("int amp = \\d+; // amp\n"));
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static String base64(String text) {
+        return Base64.getEncoder().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void awaitClients(Server server, long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (server.clients().count() < count) {
+            assertTrue(System.currentTimeMillis() < deadline, server.clients().count() + " of " + count + " clients connected");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package lvp;
+
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// 200,000 small Clerk.write events of a script process, printed one line at a time or buffered
+@Tag("benchmark")
+class StdoutSinkBenchmark {
+    private static final int EVENTS = 200_000;
+
+    @Test
+    void printlnVersusBuffered(@TempDir Path dir) throws Exception {
+        ClerkSink println = (event, data) -> System.out.println(event + ":" + Base64.getEncoder().encodeToString(data.getBytes(StandardCharsets.UTF_8)));
+        PrintStream original = System.out;
+        for (int round = 0; round < 3; round++) {
+            long printlnMillis, bufferedMillis;
+            try (PrintStream file = new PrintStream(new FileOutputStream(dir.resolve("stdout").toFile()), true, StandardCharsets.UTF_8)) {
+                System.setOut(file);
+                printlnMillis = writeEvents(println);
+                bufferedMillis = writeEvents(StdoutSink.create());
+            } finally {
+                System.setOut(original);
+            }
+            System.out.printf("println sink %d ms, buffered sink %d ms%n", printlnMillis, bufferedMillis);
+        }
+    }
+
+    private static long writeEvents(ClerkSink sink) {
+        long start = System.nanoTime();
+        for (int i = 0; i < EVENTS; i++) sink.out(SSEType.WRITE, "<circle cx='" + i + "'/>");
+        sink.flush();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,35 @@
+package lvp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+
+class StdoutSinkTest {
+    // A line the script prints itself comes after the events it sent before, although those are still buffered
+    @Test
+    void keepsTheOrderWithDirectPrints() {
+        PrintStream original = System.out;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        try {
+            StdoutSink sink = StdoutSink.create();
+            sink.out(SSEType.WRITE, "first");
+            System.out.println("second");
+            sink.out(SSEType.WRITE, "third");
+            sink.flush();
+        } finally {
+            System.setOut(original);
+        }
+        assertEquals("WRITE:" + base64("first") + "\nsecond\nWRITE:" + base64("third") + "\n",
+            bytes.toString(StandardCharsets.UTF_8).replace(System.lineSeparator(), "\n"));
+    }
+
+    private static String base64(String text) {
+        return Base64.getEncoder().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
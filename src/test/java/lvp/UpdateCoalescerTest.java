@@ -0,0 +1,135 @@
+package lvp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import lvp.Server.ReplacementType;
+import lvp.SourceEditor.Edit;
+import lvp.metrics.Counter;
+import lvp.metrics.Metrics;
+
+// A slider dragged at 60 Hz, as the browser posts it to '/interact'
+class UpdateCoalescerTest {
+    private static final long FRAME_NANOS = 1_000_000_000L / 60;
+
+    @Test
+    void keepsTheLatestEditPerLabelOfEachWindow() throws Exception {
+        List<List<Edit>> applied = new CopyOnWriteArrayList<>();
+        UpdateCoalescer coalescer = new UpdateCoalescer((_, edits) -> applied.add(edits));
+        Path file = Path.of("plot.java");
+
+        long start = System.nanoTime();
+        for (int frame = 0; frame < 60; frame++) {
+            sleepUntil(start + frame * FRAME_NANOS);
+            coalescer.submit(file, new Edit("// amp", ReplacementType.SINGLE, "int amp = " + frame + ";"));
+            coalescer.submit(file, new Edit("// freq", ReplacementType.SINGLE, "int freq = " + frame + ";"));
+        }
+        long dragMillis = (System.nanoTime() - start) / 1_000_000;
+        coalescer.stop();
+
+        assertTrue(applied.size() <= dragMillis / UpdateCoalescer.WINDOW_MILLIS + 2, applied.size() + " writes for a drag of " + dragMillis + " ms");
+        // A window may close between the two labels of a frame, so the order within a window varies
+        for (List<Edit> edits : applied) {
+            assertEquals(edits.size(), (int) edits.stream().map(Edit::label).distinct().count());
+        }
+        List<Edit> last = applied.get(applied.size() - 1);
+        assertTrue(last.contains(new Edit("// freq", ReplacementType.SINGLE, "int freq = 59;")), last.toString());
+        assertTrue(applied.stream().flatMap(List::stream).filter(edit -> edit.label().equals("// amp")).toList().getLast().replacement().equals("int amp = 59;"));
+    }
+
+    @Test
+    void dragWritesAndRunsOncePerWindow(@TempDir Path dir) throws Exception {
+        Counter writes = Metrics.counter("lvp_interact_writes_total", "Source file writes for interactions");
+        Counter runs = Metrics.counter("lvp_runs_total", "Script runs started by the watcher");
+        Path script = dir.resolve("plot.java");
+        Files.writeString(script, """
+            import lvp.Clerk;
+
+            void main() {
+                int amp = 1; // amp
+                Clerk.write("amp " + amp);
+            }
+            """);
+
+        Server server = new Server(0, false);
+        FileWatcher watcher = new FileWatcher(dir, "plot.java", server, new RunOptions(RunMode.IN_PROCESS, List.of(), 1, 2, false, false, false));
+        Thread.ofPlatform().daemon().start(() -> watcher.watchLoop(server));
+        try {
+            // What the browser sees: the output of every run that got as far as writing it
+            HttpClient http = HttpClient.newHttpClient();
+            BlockingQueue<String> output = new LinkedBlockingQueue<>();
+            http.sendAsync(HttpRequest.newBuilder(URI.create("http://localhost:" + server.port + "/events")).build(), HttpResponse.BodyHandlers.ofLines())
+                .thenAccept(response -> response.body().forEach(line -> {
+                    if (line.startsWith("data: WRITE:")) output.add(new String(Base64.getDecoder().decode(line.substring(12)), StandardCharsets.UTF_8));
+                }));
+            assertEquals("amp 1", output.poll(30, TimeUnit.SECONDS));
+            awaitStable(runs);
+            long writesBefore = writes.sum();
+
+            List<CompletableFuture<?>> posts = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int frame = 0; frame < 120; frame++) { // two seconds
+                sleepUntil(start + frame * FRAME_NANOS);
+                String body = base64(script.toString()) + ":" + base64("// amp") + ":single:" + base64("int amp = " + frame + ";");
+                posts.add(http.sendAsync(HttpRequest.newBuilder(URI.create("http://localhost:" + server.port + "/interact"))
+                    .POST(HttpRequest.BodyPublishers.ofString(body)).build(), HttpResponse.BodyHandlers.discarding()));
+            }
+            long dragMillis = (System.nanoTime() - start) / 1_000_000;
+            posts.forEach(CompletableFuture::join);
+            awaitStable(runs);
+
+            List<String> reruns = new ArrayList<>();
+            for (String text; (text = output.poll(30, TimeUnit.SECONDS)) != null; ) {
+                reruns.add(text);
+                if (text.equals("amp 119")) break;
+            }
+            Thread.sleep(500);
+            output.drainTo(reruns);
+            long fileWrites = writes.sum() - writesBefore;
+            assertTrue(fileWrites >= 1 && fileWrites <= dragMillis / UpdateCoalescer.WINDOW_MILLIS + 2, fileWrites + " writes for a drag of " + dragMillis + " ms");
+            assertTrue(!reruns.isEmpty() && reruns.size() <= fileWrites, reruns.size() + " runs with output for " + fileWrites + " writes");
+            assertEquals("amp 119", reruns.get(reruns.size() - 1));
+            assertTrue(Files.readString(script).contains("int amp = 119; // amp"));
+        } finally {
+            watcher.stop();
+            server.stop();
+        }
+    }
+
+    private static String base64(String text) {
+        return Base64.getEncoder().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void sleepUntil(long nanos) throws InterruptedException {
+        long left = nanos - System.nanoTime();
+        if (left > 0) Thread.sleep(left / 1_000_000, (int) (left % 1_000_000));
+    }
+
+    // Waits until no run has started for a second, i.e. the watcher has handled all changes
+    private static void awaitStable(Counter runs) throws InterruptedException {
+        long seen;
+        do {
+            seen = runs.sum();
+            Thread.sleep(1000);
+        } while (runs.sum() != seen);
+    }
+}
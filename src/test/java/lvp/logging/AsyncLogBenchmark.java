@@ -0,0 +1,67 @@
+package lvp.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// 50,000 debug lines per thread into a FileDestination: time until all callers returned, sync and async
+@Tag("benchmark")
+class AsyncLogBenchmark {
+    private static final int LINES_PER_THREAD = 50_000;
+
+    @Test
+    void syncVersusAsync(@TempDir Path dir) throws Exception {
+        PrintStream original = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // the console destination
+        Logger.setLogLevel(LogLevel.Debug);
+        List<String> results = new ArrayList<>();
+        try {
+            for (int threads : List.of(1, 8, 32)) {
+                long sync = logFromThreads(dir.resolve("sync-" + threads + ".log"), threads, false);
+                long async = logFromThreads(dir.resolve("async-" + threads + ".log"), threads, true);
+                results.add(String.format("%2d threads: %5d ms sync, %5d ms async", threads, sync, async));
+            }
+        } finally {
+            Logger.setLogLevel(LogLevel.Error);
+            System.setOut(original);
+        }
+        results.forEach(System.out::println);
+    }
+
+    private static long logFromThreads(Path file, int threads, boolean isAsync) throws Exception {
+        FileDestination destination = FileDestination.of(file.toString());
+        Logger.addDestination(destination);
+        if (isAsync) Logger.startAsync(1 << 14, FlushPolicy.EVERY_BATCH);
+        long millis;
+        try {
+            long start = System.nanoTime();
+            List<Thread> callers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int id = i;
+                callers.add(Thread.ofPlatform().start(() -> {
+                    for (int line = 0; line < LINES_PER_THREAD; line++) Logger.logDebug("thread {} message {}", id, line);
+                }));
+            }
+            for (Thread caller : callers) caller.join();
+            millis = (System.nanoTime() - start) / 1_000_000;
+        } finally {
+            Logger.stopAsync();
+            Logger.removeDestination(destination);
+            destination.flush();
+        }
+        try (Stream<String> lines = Files.lines(file)) {
+            assertEquals((long) threads * LINES_PER_THREAD, lines.count());
+        }
+        return millis;
+    }
+}
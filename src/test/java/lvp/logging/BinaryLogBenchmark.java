@@ -0,0 +1,60 @@
+package lvp.logging;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// 1M "Event: {} with data: {}" entries with a 200-char payload: formatted text versus the binary log, and decoding
+@Tag("benchmark")
+class BinaryLogBenchmark {
+    private static final int ENTRIES = 1_000_000;
+    private static final String TEMPLATE = "Event: {} with data: {}";
+
+    @Test
+    void textVersusBinary(@TempDir Path dir) throws Exception {
+        String payload = "x".repeat(200);
+        for (int round = 0; round < 3; round++) {
+            Path text = dir.resolve("text-" + round + ".log");
+            FileDestination textDestination = FileDestination.of(text.toString());
+            long start = System.nanoTime();
+            for (int i = 0; i < ENTRIES; i++) {
+                LocalDateTime now = LocalDateTime.ofInstant(Instant.now(), Logger.ZONE);
+                textDestination.log(Logger.format(now, LogLevel.Debug, Logger.fill(TEMPLATE, "WRITE", payload), null));
+            }
+            long textNanos = (System.nanoTime() - start) / ENTRIES;
+            Files.delete(text);
+
+            Path binary = dir.resolve("binary-" + round + ".bin");
+            BinaryFileDestination binaryDestination = BinaryFileDestination.of(binary);
+            start = System.nanoTime();
+            for (int i = 0; i < ENTRIES; i++) {
+                binaryDestination.log(Logger.epochNanos(Instant.now()), LogLevel.Debug, TEMPLATE, new Object[] { "WRITE", payload }, null);
+            }
+            long binaryNanos = (System.nanoTime() - start) / ENTRIES;
+            binaryDestination.close();
+
+            start = System.nanoTime();
+            try (Writer out = new BufferedWriter(Writer.nullWriter())) {
+                decode(binary, out);
+            }
+            long decodeNanos = (System.nanoTime() - start) / ENTRIES;
+            Files.delete(binary);
+            System.out.printf("text %d ns/entry, binary %d ns/entry, decoding %d ns/entry%n", textNanos, binaryNanos, decodeNanos);
+        }
+    }
+
+    private static void decode(Path file, Writer out) throws IOException {
+        try (FileChannel channel = FileChannel.open(file)) {
+            new LogDecoder(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())).decode(out);
+        }
+    }
+}
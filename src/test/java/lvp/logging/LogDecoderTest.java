@@ -0,0 +1,44 @@
+package lvp.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.StringWriter;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LogDecoderTest {
+    // The decoder renders the entries exactly like the Logger would have
+    @Test
+    void decodesLikeTheLogger(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("round-trip.bin");
+        BinaryFileDestination destination = BinaryFileDestination.of(file);
+        StringBuilder expected = new StringBuilder();
+        Object[][] entries = {
+            { "Event: {} with data: {}", new Object[] { "WRITE", "PGI+aMOkbGxvPC9iPg==" } },
+            { "Port {} open: {}", new Object[] { 8080, true } },
+            { "ratio {}", new Object[] { 0.25 } },
+            { "null {}", new Object[] { null } },
+        };
+        for (Object[] entry : entries) {
+            Instant now = Instant.now();
+            destination.log(Logger.epochNanos(now), LogLevel.Info, (String) entry[0], (Object[]) entry[1], null);
+            expected.append(Logger.format(LocalDateTime.ofInstant(now, Logger.ZONE), LogLevel.Info, Logger.fill((String) entry[0], (Object[]) entry[1]), null)).append(System.lineSeparator());
+        }
+        Exception error = new IllegalStateException("boom");
+        Instant now = Instant.now();
+        destination.log(Logger.epochNanos(now), LogLevel.Error, "failed", Logger.NO_ARGS, error);
+        expected.append(Logger.format(LocalDateTime.ofInstant(now, Logger.ZONE), LogLevel.Error, "failed", error)).append(System.lineSeparator());
+        destination.close();
+
+        StringWriter decoded = new StringWriter();
+        try (FileChannel channel = FileChannel.open(file)) {
+            new LogDecoder(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())).decode(decoded);
+        }
+        assertEquals(expected.toString(), decoded.toString());
+    }
+}
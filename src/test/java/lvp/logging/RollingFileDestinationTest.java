@@ -0,0 +1,35 @@
+package lvp.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RollingFileDestinationTest {
+    // The log file is deleted from outside, so the rename of the rotation fails; the messages still get written
+    @Test
+    void keepsWritingWhenRotationFails(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("lvp.log");
+        RollingFileDestination destination = RollingFileDestination.of(file, new RollingPolicy(8, Duration.ofHours(1), 1 << 20));
+        PrintStream original = System.err;
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(errors, true, StandardCharsets.UTF_8));
+        try {
+            destination.log("first message");
+            Files.delete(file);
+            destination.log("second message");
+            destination.log("third message");
+        } finally {
+            System.setErr(original);
+        }
+        assertEquals("second message" + System.lineSeparator() + "third message" + System.lineSeparator(), Files.readString(file));
+        assertEquals(1, errors.toString(StandardCharsets.UTF_8).lines().filter(line -> line.startsWith("Log rotation failed")).count());
+    }
+}
@@ -0,0 +1,74 @@
+package lvp.skills;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.BufferedWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.sun.management.ThreadMXBean;
+
+// Text.escapeHtml against the chained replaceAll it replaced, on 4 MB of Java source and of text without escapes
+@Tag("benchmark")
+class EscapeHtmlBenchmark {
+    private interface Action { int run() throws Exception; }
+
+    private int length;
+
+    @Test
+    void replaceAllVersusEscapeHtml() throws Exception {
+        // Same output as the replaceAll chain plus the quotes, for all three overloads
+        Random random = new Random(1);
+        String alphabet = "ab<>&\"'x \nä€";
+        for (int n = 0; n < 100_000; n++) {
+            char[] chars = new char[random.nextInt(20)];
+            for (int i = 0; i < chars.length; i++) chars[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+            String text = new String(chars);
+            String expected = replaceAll(text).replace("\"", "&quot;").replace("'", "&#39;");
+            assertEquals(expected, Text.escapeHtml(text));
+            assertEquals(expected, Text.escapeHtml(text, new StringBuilder()).toString());
+            assertEquals(expected, Text.escapeHtml(text, (Appendable) new StringWriter()).toString());
+        }
+
+        String source = Files.readString(Path.of("src/main/java/lvp/Server.java"));
+        String code = source.repeat(4_000_000 / source.length() + 1);
+        String plain = "Lorem ipsum dolor sit amet, consectetur adipiscing elit 0123456789\n".repeat(60_000);
+        System.out.printf("code: %.1f MB, %d characters to escape; plain: %.1f MB%n", code.length() / 1e6,
+            code.chars().filter(c -> "<>&\"'".indexOf(c) >= 0).count(), plain.length() / 1e6);
+        Writer devNull = new BufferedWriter(Writer.nullWriter(), 1 << 16);
+        for (int round = 0; round < 3; round++) {
+            measure("code, replaceAll x3", () -> replaceAll(code).length());
+            measure("code, escapeHtml", () -> Text.escapeHtml(code).length());
+            measure("code, into Writer", () -> {
+                Text.escapeHtml(code, devNull);
+                return 0;
+            });
+            measure("plain, replaceAll x3", () -> replaceAll(plain).length());
+            measure("plain, escapeHtml", () -> Text.escapeHtml(plain).length());
+        }
+    }
+
+    private void measure(String name, Action action) throws Exception {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long bytes = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime(), end = start + 2_000_000_000L, count = 0;
+        while (System.nanoTime() < end) {
+            length += action.run();
+            count++;
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-22s %8.2f ms per call %6.1f MB allocated per call%n", name, elapsed / 1e6 / count, (threads.getCurrentThreadAllocatedBytes() - bytes) / 1e6 / count);
+    }
+
+    // Text.escapeHtml before the single pass
+    private static String replaceAll(String text) {
+        return text.replaceAll("&", "&amp;").replaceAll("<", "&lt;").replaceAll(">", "&gt;");
+    }
+}
@@ -0,0 +1,87 @@
+package lvp.skills;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.sun.management.ThreadMXBean;
+
+// Text.fillOut against the regex implementation it replaced: renders per second and bytes allocated per render
+@Tag("benchmark")
+class FillOutBenchmark {
+    private int length;
+
+    @Test
+    void regexVersusTemplate() {
+        PrintStream original = System.err;
+        System.setErr(new PrintStream(OutputStream.nullOutputStream())); // warnings about missing keys
+        try {
+            // Same output on random templates, including broken and escaped slots
+            Random random = new Random(42);
+            String[] pieces = { "${", "}", "$", "{", "0", "1", "2", "10", "a", "\n", "\r", " ", "x", "\\", "${0}", "${1}", "${}", "$$", "${00}" };
+            Map<String, Object> map = Map.of("a", "$\\", "0", 7, "", "empty");
+            for (int n = 0; n < 200_000; n++) {
+                StringBuilder template = new StringBuilder();
+                for (int i = random.nextInt(12); i > 0; i--) template.append(pieces[random.nextInt(pieces.length)]);
+                Object[] values = new Object[random.nextInt(4)];
+                for (int i = 0; i < values.length; i++) values[i] = pieces[random.nextInt(pieces.length)] + i;
+                assertEquals(regexFillOut(template.toString(), values), Text.fillOut(template.toString(), values));
+                assertEquals(regexFillOut(map, template.toString()), Text.fillOut(map, template.toString()));
+            }
+        } finally {
+            System.setErr(original);
+        }
+
+        String slider = "<input type='range' id='slider${0}' min='${1}' max='${2}' value='${3}' step='any' oninput='${4}'/>";
+        String svg = "<svg>" + "<line x1='1' y1='2' x2='3' y2='4' stroke='rgb(0,0,0)'/>\n".repeat(20_000) + "</svg>";
+        for (int round = 0; round < 3; round++) {
+            measure("slider, regex", () -> regexFillOut(slider, "abc", 0.0, 100.0, 50.0, "fetch(\"x\")"));
+            measure("slider, template", () -> Text.fillOut(slider, "abc", 0.0, 100.0, 50.0, "fetch(\"x\")"));
+            measure("turtle 1 MB, regex", () -> regexFillOut("<div id='turtle${0}'>${1}</div>", "1a2b", svg));
+            measure("turtle 1 MB, template", () -> Text.fillOut("<div id='turtle${0}'>${1}</div>", "1a2b", svg));
+        }
+    }
+
+    private void measure(String name, Supplier<String> render) {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long bytes = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime(), end = start + 1_000_000_000L, count = 0;
+        while (System.nanoTime() < end) {
+            length += render.get().length();
+            count++;
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-22s %,12.0f renders/s %,12d B/render%n", name, count * 1e9 / elapsed, (threads.getCurrentThreadAllocatedBytes() - bytes) / count);
+    }
+
+    // Text.fillOut before Template
+    private static String regexFillOut(Map<String, Object> replacements, String template) {
+        Matcher matcher = Pattern.compile("\\$\\{(.*?)\\}").matcher(template);
+        StringBuffer result = new StringBuffer();
+        while (matcher.find()) {
+            String key = matcher.group(1);
+            Object replacement = replacements.getOrDefault(key, "${" + key + "}");
+            matcher.appendReplacement(result, Matcher.quoteReplacement(replacement.toString()));
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    private static String regexFillOut(String template, Object... replacements) {
+        Map<String, Object> map = new HashMap<>();
+        IntStream.range(0, replacements.length).forEach(i -> map.put(Integer.toString(i), replacements[i]));
+        return regexFillOut(map, template);
+    }
+}